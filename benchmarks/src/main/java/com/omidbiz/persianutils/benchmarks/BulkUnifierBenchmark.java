@@ -0,0 +1,113 @@
+package com.omidbiz.persianutils.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.omidbiz.persianutils.BulkUnifier;
+import com.omidbiz.persianutils.PersianCharacterUnifier;
+import com.omidbiz.persianutils.UnifyingReader;
+
+/**
+ * @author omidp
+ *         <p>
+ *         {@link BulkUnifier} over a file of mixed Persian text on pools of a
+ *         given number of threads, against the same file unified by a
+ *         {@link UnifyingReader} and written back as UTF-8 on one thread.
+ *         </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkUnifierBenchmark
+{
+
+    private static final int LINE = 1024;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    @Param({ "268435456" })
+    public long size;
+
+    private ForkJoinPool pool;
+
+    private Path source;
+
+    private Path target;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        pool = new ForkJoinPool(threads);
+        Random random = Inputs.random();
+        source = Files.createTempFile("persianutils", ".txt");
+        target = Files.createTempFile("persianutils", ".txt");
+        try (OutputStream out = Files.newOutputStream(source))
+        {
+            for (long written = 0; written < size;)
+            {
+                byte[] line = (Inputs.persianText(random, LINE, 5) + '\n').getBytes(StandardCharsets.UTF_8);
+                out.write(line);
+                written += line.length;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        pool.shutdown();
+        Files.delete(source);
+        Files.delete(target);
+    }
+
+    @Benchmark
+    public long unify() throws IOException
+    {
+        return new BulkUnifier(pool, BulkUnifier.DEFAULT_CHUNK_SIZE).unify(source, target);
+    }
+
+    /**
+     * {@link PersianCharacterUnifier} as a stream, decoding and encoding.
+     */
+    @Benchmark
+    public long unifyingReader() throws IOException
+    {
+        try (UnifyingReader reader = new UnifyingReader(Files.newBufferedReader(source, StandardCharsets.UTF_8));
+                Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8))
+        {
+            char[] buffer = new char[8192];
+            long length = 0;
+            for (int n; (n = reader.read(buffer)) != -1;)
+            {
+                writer.write(buffer, 0, n);
+                length += n;
+            }
+            return length;
+        }
+    }
+
+}
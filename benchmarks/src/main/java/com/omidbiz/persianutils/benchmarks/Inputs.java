@@ -0,0 +1,106 @@
+package com.omidbiz.persianutils.benchmarks;
+
+import java.util.Random;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Seeded input generators, so that every run and every benchmark sees
+ *         the same data. Benchmarks cycle through {@link #SIZE} inputs with
+ *         {@link #MASK} to keep branch predictors and caches from learning a
+ *         single value.
+ *         </p>
+ */
+final class Inputs
+{
+
+    static final int SIZE = 1024;
+
+    static final int MASK = SIZE - 1;
+
+    private static final long SEED = 20150723L;
+
+    private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+    // 2015/01/01 and 2025/01/01 UTC
+    private static final long RECENT_START = 16436 * ONE_DAY;
+
+    private static final long RECENT_END = 20089 * ONE_DAY;
+
+    // 1900/01/01 UTC
+    private static final long OLD_START = -25567 * ONE_DAY;
+
+    private static final String PERSIAN_LETTERS = "ابپتثجچحخدذرزژسشصضطظعغفقکگلمنوهی";
+
+    private static final String PERSIAN_WORD_SEPARATORS = "  \u200C";
+
+    private Inputs()
+    {
+    }
+
+    static Random random()
+    {
+        return new Random(SEED);
+    }
+
+    /**
+     * Instants the way application data has them: most in the last decade,
+     * a quarter since 1970 and a few back to 1900, at any time of day.
+     */
+    static long[] instants()
+    {
+        Random random = random();
+        long[] millis = new long[SIZE];
+        for (int i = 0; i < SIZE; i++)
+        {
+            int bucket = random.nextInt(100);
+            long start = bucket < 70 ? RECENT_START : bucket < 95 ? 0 : OLD_START;
+            long end = bucket < 70 ? RECENT_END : bucket < 95 ? RECENT_START : 0;
+            millis[i] = start + (long) (random.nextDouble() * (end - start));
+        }
+        return millis;
+    }
+
+    /**
+     * Persian text of the given length in words of 2 to 8 letters.
+     *
+     * @param arabicPercent
+     *            percentage of ye and kaf written in their Arabic form, and
+     *            of word separators that are a right-to-left mark
+     */
+    static String persianText(Random random, int length, int arabicPercent)
+    {
+        StringBuilder sb = new StringBuilder(length);
+        int word = 2 + random.nextInt(7);
+        while (sb.length() < length)
+        {
+            if (word-- == 0)
+            {
+                sb.append(random.nextInt(100) < arabicPercent ? '\u200F'
+                        : PERSIAN_WORD_SEPARATORS.charAt(random.nextInt(PERSIAN_WORD_SEPARATORS.length())));
+                word = 2 + random.nextInt(7);
+                continue;
+            }
+            char ch = PERSIAN_LETTERS.charAt(random.nextInt(PERSIAN_LETTERS.length()));
+            if ((ch == 'ی' || ch == 'ک') && random.nextInt(100) < arabicPercent)
+                ch = ch == 'ی' ? '\u064A' : '\u0643';
+            sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * ASCII text of the given length, such as identifiers and file names.
+     */
+    static String asciiText(Random random, int length)
+    {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length)
+        {
+            int r = random.nextInt(40);
+            sb.append(r < 26 ? (char) ('a' + r) : r < 36 ? (char) ('0' + r - 26) : r < 38 ? '_' : ' ');
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.omidbiz.persianutils.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Calendar;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.omidbiz.persianutils.JalaliCalendar;
+import com.omidbiz.persianutils.JalaliCalendarPool;
+
+/**
+ * @author omidp
+ *         <p>
+ *         {@link JalaliCalendar} in Asia/Tehran: fields from a time
+ *         (setTimeInMillis and get), time from fields (set and
+ *         getTimeInMillis, from a date or a week), add, roll, stepping one
+ *         calendar and the actual maximums, a sorted
+ *         stream of times through one calendar, and the date and week fields of
+ *         a batch of times, with a calendar and with
+ *         {@link JalaliCalendar#timesToFields}, a calendar per request,
+ *         constructed and pooled, and serialization.
+ *         </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JalaliCalendarBenchmark
+{
+
+    /**
+     * Field that add and roll change.
+     */
+    @State(Scope.Thread)
+    public static class Field
+    {
+
+        @Param({ "DAY_OF_MONTH", "MONTH", "HOUR_OF_DAY" })
+        public String name;
+
+        int field;
+
+        @Setup
+        public void setUp()
+        {
+            field = "DAY_OF_MONTH".equals(name) ? Calendar.DAY_OF_MONTH
+                    : "MONTH".equals(name) ? Calendar.MONTH : Calendar.HOUR_OF_DAY;
+        }
+
+    }
+
+    /**
+     * Sorted times up to ten minutes apart, as in an event log, through a
+     * calendar with or without the same day fast path.
+     */
+    @State(Scope.Thread)
+    public static class Stream
+    {
+
+        @Param({ "false", "true" })
+        public boolean sameDayFastPath;
+
+        final JalaliCalendar calendar = new JalaliCalendar(TimeZone.getTimeZone("Asia/Tehran"));
+
+        long[] instants;
+
+        int index;
+
+        @Setup
+        public void setUp()
+        {
+            calendar.setSameDayFastPath(sameDayFastPath);
+            Random random = Inputs.random();
+            instants = new long[Inputs.SIZE];
+            long t = Inputs.instants()[0];
+            for (int i = 0; i < Inputs.SIZE; i++)
+            {
+                t += random.nextInt(10 * 60 * 1000);
+                instants[i] = t;
+            }
+        }
+
+    }
+
+    private final TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+
+    private final JalaliCalendar calendar = new JalaliCalendar(tehran);
+
+    private final JalaliCalendarPool pool = JalaliCalendarPool.getInstance();
+
+    private long[] instants;
+
+    private int[] years;
+
+    private int[] months;
+
+    private int[] days;
+
+    private int[] hours;
+
+    private int[] minutes;
+
+    private int[] amounts;
+
+    private final int[] maximumFields = { Calendar.YEAR, Calendar.DAY_OF_MONTH, Calendar.DAY_OF_YEAR,
+            Calendar.WEEK_OF_YEAR, Calendar.WEEK_OF_MONTH };
+
+    private final int[] maximums = new int[maximumFields.length];
+
+    private final int[] batchFields = { Calendar.YEAR, Calendar.MONTH, Calendar.DAY_OF_MONTH, Calendar.DAY_OF_WEEK,
+            Calendar.WEEK_OF_YEAR };
+
+    private final int[][] batchColumns = new int[batchFields.length][Inputs.SIZE];
+
+    private int index;
+
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        instants = Inputs.instants();
+        years = new int[Inputs.SIZE];
+        months = new int[Inputs.SIZE];
+        days = new int[Inputs.SIZE];
+        hours = new int[Inputs.SIZE];
+        minutes = new int[Inputs.SIZE];
+        amounts = new int[Inputs.SIZE];
+        Random random = Inputs.random();
+        for (int i = 0; i < Inputs.SIZE; i++)
+        {
+            calendar.setTimeInMillis(instants[i]);
+            years[i] = calendar.get(Calendar.YEAR);
+            months[i] = calendar.get(Calendar.MONTH);
+            days[i] = calendar.get(Calendar.DAY_OF_MONTH);
+            hours[i] = calendar.get(Calendar.HOUR_OF_DAY);
+            minutes[i] = calendar.get(Calendar.MINUTE);
+            // mostly small steps, both ways
+            amounts[i] = random.nextInt(100) < 90 ? random.nextInt(7) - 3 : random.nextInt(121) - 60;
+        }
+        calendar.setTimeInMillis(instants[0]);
+        serialized = serialize();
+    }
+
+    private int next()
+    {
+        return index++ & Inputs.MASK;
+    }
+
+    @Benchmark
+    public int setTimeInMillisGetDate()
+    {
+        calendar.setTimeInMillis(instants[next()]);
+        return calendar.get(Calendar.YEAR) + calendar.get(Calendar.MONTH) + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    @Benchmark
+    public int setTimeInMillisGetWeek()
+    {
+        calendar.setTimeInMillis(instants[next()]);
+        return calendar.get(Calendar.DAY_OF_WEEK) + calendar.get(Calendar.WEEK_OF_YEAR);
+    }
+
+    @Benchmark
+    public long computeTime()
+    {
+        int i = next();
+        calendar.clear();
+        calendar.set(years[i], months[i], days[i], hours[i], minutes[i]);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Time from a year, week of year and day of week, as a weekly report
+     * does.
+     */
+    @Benchmark
+    public long computeTimeFromWeek()
+    {
+        int i = next();
+        calendar.clear();
+        calendar.set(Calendar.YEAR, years[i]);
+        calendar.set(Calendar.WEEK_OF_YEAR, 1 + (days[i] + months[i] * 4) % 52);
+        calendar.set(Calendar.DAY_OF_WEEK, Calendar.SATURDAY);
+        return calendar.getTimeInMillis();
+    }
+
+    @Benchmark
+    public long add(Field field)
+    {
+        int i = next();
+        calendar.setTimeInMillis(instants[i]);
+        calendar.add(field.field, amounts[i]);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * One calendar stepped a unit at a time, as a calendar view or a schedule
+     * does, from the start of the inputs again every {@link Inputs#SIZE}
+     * steps.
+     */
+    @Benchmark
+    public int step(Field field)
+    {
+        if (next() == 0)
+            calendar.setTimeInMillis(instants[0]);
+        calendar.add(field.field, 1);
+        return calendar.get(Calendar.YEAR) + calendar.get(Calendar.MONTH) + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    @Benchmark
+    public long roll(Field field)
+    {
+        int i = next();
+        calendar.setTimeInMillis(instants[i]);
+        calendar.roll(field.field, amounts[i]);
+        return calendar.getTimeInMillis();
+    }
+
+    @Benchmark
+    public int actualMaximumYear()
+    {
+        calendar.setTimeInMillis(instants[next()]);
+        return calendar.getActualMaximum(Calendar.YEAR);
+    }
+
+    /**
+     * The fields a month or year view needs, in one call.
+     */
+    @Benchmark
+    public int[] actualMaximums()
+    {
+        calendar.setTimeInMillis(instants[next()]);
+        calendar.getActualMaximums(maximumFields, maximums);
+        return maximums;
+    }
+
+    @Benchmark
+    public int sortedStream(Stream stream)
+    {
+        JalaliCalendar calendar = stream.calendar;
+        calendar.setTimeInMillis(stream.instants[stream.index++ & Inputs.MASK]);
+        return calendar.get(Calendar.YEAR) + calendar.get(Calendar.MONTH) + calendar.get(Calendar.DAY_OF_MONTH)
+                + calendar.get(Calendar.HOUR_OF_DAY) + calendar.get(Calendar.MINUTE);
+    }
+
+    /**
+     * The batch fields of all {@link Inputs#SIZE} times, one calendar for
+     * all rows.
+     */
+    @Benchmark
+    public int[][] batchCalendar()
+    {
+        for (int i = 0; i < Inputs.SIZE; i++)
+        {
+            calendar.setTimeInMillis(instants[i]);
+            for (int k = 0; k < batchFields.length; k++)
+                batchColumns[k][i] = calendar.get(batchFields[k]);
+        }
+        return batchColumns;
+    }
+
+    @Benchmark
+    public int[][] batchTimesToFields()
+    {
+        JalaliCalendar.timesToFields(instants, 0, Inputs.SIZE, calendar.getTimeZone(), calendar.getFirstDayOfWeek(),
+                calendar.getMinimalDaysInFirstWeek(), batchFields, batchColumns, 0);
+        return batchColumns;
+    }
+
+    @Benchmark
+    public int[][] sortedBatchTimesToFields(Stream stream)
+    {
+        JalaliCalendar.timesToFields(stream.instants, 0, Inputs.SIZE, calendar.getTimeZone(),
+                calendar.getFirstDayOfWeek(), calendar.getMinimalDaysInFirstWeek(), batchFields, batchColumns, 0);
+        return batchColumns;
+    }
+
+    /**
+     * A calendar per request, constructed.
+     */
+    @Benchmark
+    public int newCalendar()
+    {
+        JalaliCalendar calendar = new JalaliCalendar(tehran);
+        calendar.setTimeInMillis(instants[next()]);
+        return calendar.get(Calendar.YEAR) + calendar.get(Calendar.MONTH) + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * A calendar per request, from {@link JalaliCalendarPool}.
+     */
+    @Benchmark
+    public int pooledCalendar()
+    {
+        JalaliCalendar calendar = pool.acquire(tehran, instants[next()]);
+        int date = calendar.get(Calendar.YEAR) + calendar.get(Calendar.MONTH) + calendar.get(Calendar.DAY_OF_MONTH);
+        pool.release(calendar);
+        return date;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(calendar);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException
+    {
+        return new ObjectInputStream(new ByteArrayInputStream(serialized)).readObject();
+    }
+
+}
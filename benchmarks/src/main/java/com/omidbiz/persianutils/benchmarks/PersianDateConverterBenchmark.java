@@ -0,0 +1,201 @@
+package com.omidbiz.persianutils.benchmarks;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.omidbiz.persianutils.JalaliFormatter;
+import com.omidbiz.persianutils.PersianDateConverter;
+
+/**
+ * @author omidp
+ *         <p>
+ *         {@link PersianDateConverter}: the string conversions for every
+ *         layout the parser accepts, the Date based ones, the packed getters
+ *         and the bulk array conversions.
+ *         </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersianDateConverterBenchmark
+{
+
+    /**
+     * The same instants written in one of the layouts of
+     * {@link PersianDateConverter#GregorianToSolar(String)}.
+     */
+    @State(Scope.Thread)
+    public static class Layout
+    {
+
+        @Param({ "yyyy/MM/dd", "yyyy/MM/dd HH:mm", "yyyy/MM/dd HH:mm:ss", "yyyy-MM-dd HH:mm:ss.S" })
+        public String layout;
+
+        String[] solar;
+
+        String[] gregorian;
+
+        int index;
+
+        @Setup
+        public void setUp()
+        {
+            TimeZone utc = TimeZone.getTimeZone("UTC");
+            JalaliFormatter solarFormat = JalaliFormatter.ofPattern(layout).withZone(utc);
+            SimpleDateFormat gregorianFormat = new SimpleDateFormat(layout);
+            gregorianFormat.setTimeZone(utc);
+            long[] instants = Inputs.instants();
+            solar = new String[Inputs.SIZE];
+            gregorian = new String[Inputs.SIZE];
+            for (int i = 0; i < Inputs.SIZE; i++)
+            {
+                solar[i] = solarFormat.format(instants[i]);
+                gregorian[i] = gregorianFormat.format(new Date(instants[i]));
+            }
+        }
+
+        int next()
+        {
+            return index++ & Inputs.MASK;
+        }
+
+    }
+
+    private final PersianDateConverter converter = PersianDateConverter.getInstance();
+
+    private final TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+
+    private long[] instants;
+
+    private Date[] dates;
+
+    private int[] solarYears;
+
+    private int[] solarMonths;
+
+    private int[] solarDays;
+
+    private int[] epochDays;
+
+    private int[] packed;
+
+    private long[] millis;
+
+    private int index;
+
+    @Setup
+    public void setUp()
+    {
+        instants = Inputs.instants();
+        dates = new Date[Inputs.SIZE];
+        solarYears = new int[Inputs.SIZE];
+        solarMonths = new int[Inputs.SIZE];
+        solarDays = new int[Inputs.SIZE];
+        epochDays = new int[Inputs.SIZE];
+        packed = new int[Inputs.SIZE];
+        millis = new long[Inputs.SIZE];
+        for (int i = 0; i < Inputs.SIZE; i++)
+        {
+            dates[i] = new Date(instants[i]);
+            epochDays[i] = (int) Math.floorDiv(instants[i], 24 * 60 * 60 * 1000L);
+        }
+        converter.epochDaysToSolar(epochDays, 0, packed, 0, Inputs.SIZE);
+        for (int i = 0; i < Inputs.SIZE; i++)
+        {
+            solarYears[i] = PersianDateConverter.packedYear(packed[i]);
+            solarMonths[i] = PersianDateConverter.packedMonth(packed[i]);
+            solarDays[i] = PersianDateConverter.packedDay(packed[i]);
+        }
+    }
+
+    private int next()
+    {
+        return index++ & Inputs.MASK;
+    }
+
+    @Benchmark
+    public String solarToGregorian(Layout layout)
+    {
+        return converter.SolarToGregorian(layout.solar[layout.next()]);
+    }
+
+    @Benchmark
+    public Date solarToGregorianAsDate(Layout layout)
+    {
+        return converter.SolarToGregorianAsDate(layout.solar[layout.next()]);
+    }
+
+    @Benchmark
+    public String gregorianToSolar(Layout layout)
+    {
+        return converter.GregorianToSolar(layout.gregorian[layout.next()]);
+    }
+
+    @Benchmark
+    public String gregorianDateToSolar()
+    {
+        return converter.GregorianToSolar(dates[next()], false);
+    }
+
+    @Benchmark
+    public String gregorianDateTimeToSolar()
+    {
+        return converter.GregorianToSolar(dates[next()], true);
+    }
+
+    @Benchmark
+    public int getGregorianDate()
+    {
+        int i = next();
+        return converter.getGregorianDate(solarYears[i], solarMonths[i], solarDays[i]);
+    }
+
+    /**
+     * All {@link Inputs#SIZE} epoch days in one call, divide by the size for
+     * the cost of one.
+     */
+    @Benchmark
+    public int[] epochDaysToSolar()
+    {
+        converter.epochDaysToSolar(epochDays, 0, packed, 0, Inputs.SIZE);
+        return packed;
+    }
+
+    /**
+     * All {@link Inputs#SIZE} instants in one call.
+     */
+    @Benchmark
+    public int[] epochMillisToSolar()
+    {
+        converter.epochMillisToSolar(instants, 0, packed, 0, Inputs.SIZE, tehran);
+        return packed;
+    }
+
+    /**
+     * All {@link Inputs#SIZE} dates in one call.
+     */
+    @Benchmark
+    public long[] solarToEpochMillis()
+    {
+        converter.solarToEpochMillis(packed, 0, millis, 0, Inputs.SIZE, tehran);
+        return millis;
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.omidbiz.persianutils.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.omidbiz.persianutils.PersianCharacterUnifier;
+import com.omidbiz.persianutils.PersianNormalizer;
+import com.omidbiz.persianutils.UnicodeConverter;
+import com.omidbiz.persianutils.UnifyingReader;
+import com.omidbiz.persianutils.Utf8Unifier;
+
+/**
+ * @author omidp
+ *         <p>
+ *         {@link PersianCharacterUnifier#unify(String)}, the search profile of
+ *         {@link PersianNormalizer}, {@link UnifyingReader}, {@link Utf8Unifier}
+ *         and the
+ *         {@link UnicodeConverter} escapes over text of a given kind and
+ *         length:
+ *         <ul>
+ *         <li>clean - Persian text with nothing to unify</li>
+ *         <li>mixed - Persian text with one in twenty ye, kaf and word
+ *         separators in their Arabic form or a right-to-left mark</li>
+ *         <li>ascii - identifiers and file names, below every rule, so that
+ *         the String methods return their input</li>
+ *         </ul>
+ *         </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark
+{
+
+    private static final int TEXTS = 16;
+
+    // texts from this length on are too large for a cache, one is enough
+    private static final int LARGE = 64 * 1024;
+
+    @Param({ "clean", "mixed", "ascii" })
+    public String kind;
+
+    /**
+     * A short name, a comment and a document of several megabytes.
+     */
+    @Param({ "16", "1024", "4194304" })
+    public int length;
+
+    private final PersianCharacterUnifier unifier = PersianCharacterUnifier.getInstance();
+
+    private final PersianNormalizer search = PersianNormalizer.search();
+
+    private final UnicodeConverter unicodeConverter = UnicodeConverter.getInstance();
+
+    private String[] texts;
+
+    private String[] escaped;
+
+    private final char[] buffer = new char[8192];
+
+    private ByteBuffer[] utf8;
+
+    private ByteBuffer utf8Output;
+
+    private int mask;
+
+    private int index;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = Inputs.random();
+        int count = length < LARGE ? TEXTS : 1;
+        utf8Output = ByteBuffer.allocate(3 * length);
+        mask = count - 1;
+        texts = new String[count];
+        escaped = new String[count];
+        utf8 = new ByteBuffer[count];
+        for (int i = 0; i < count; i++)
+        {
+            if ("ascii".equals(kind))
+                texts[i] = Inputs.asciiText(random, length);
+            else
+                texts[i] = Inputs.persianText(random, length, "mixed".equals(kind) ? 5 : 0);
+            escaped[i] = unicodeConverter.unicodeEscape(texts[i]);
+            utf8[i] = ByteBuffer.wrap(texts[i].getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private int next()
+    {
+        return index++ & mask;
+    }
+
+    @Benchmark
+    public String unify()
+    {
+        return unifier.unify(texts[next()]);
+    }
+
+    /**
+     * Every rule of the normalizer, for search keys.
+     */
+    @Benchmark
+    public String normalizeSearch()
+    {
+        return search.normalize(texts[next()]);
+    }
+
+    /**
+     * {@link #unify()} as a stream, read through a buffer of the size of a
+     * typical copy loop.
+     */
+    @Benchmark
+    public int unifyingReader() throws IOException
+    {
+        Reader reader = new UnifyingReader(new StringReader(texts[next()]));
+        int length = 0;
+        for (int n; (n = reader.read(buffer)) != -1;)
+            length += n;
+        return length;
+    }
+
+    /**
+     * {@link #unify()} of UTF-8 bytes into a buffer, without decoding them.
+     */
+    @Benchmark
+    public ByteBuffer unifyUtf8()
+    {
+        ByteBuffer src = utf8[next()];
+        src.rewind();
+        utf8Output.clear();
+        Utf8Unifier.unify(src, utf8Output, true);
+        return utf8Output;
+    }
+
+    /**
+     * {@link #unifyUtf8()} by decoding to a String and encoding the unified
+     * String.
+     */
+    @Benchmark
+    public byte[] unifyUtf8Decoded()
+    {
+        ByteBuffer src = utf8[next()];
+        return unifier.unify(new String(src.array(), 0, src.limit(), StandardCharsets.UTF_8))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String unicodeEscape()
+    {
+        return unicodeConverter.unicodeEscape(texts[next()]);
+    }
+
+    @Benchmark
+    public String unicodeUnescape()
+    {
+        return unicodeConverter.unicodeUnescape(escaped[next()]);
+    }
+
+}
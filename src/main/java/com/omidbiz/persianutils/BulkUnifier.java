@@ -0,0 +1,275 @@
+package com.omidbiz.persianutils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CoderResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Unifies UTF-8 text files of any size, such as the corpora of a
+ *         reindexing job, by the rules of {@link PersianCharacterUnifier}
+ *         with {@link Utf8Unifier}. The source is split into chunks that
+ *         start at char boundaries, and each chunk is memory mapped and
+ *         unified by its own task on a fork join pool, so the throughput
+ *         grows with the threads of the pool until the disk is the limit.
+ *         </p>
+ *         <p>
+ *         The target is shorter than the source by two bytes for each
+ *         right-to-left mark or embedding. A first pass counts the unified
+ *         length of each chunk; their sums give the place of each chunk in
+ *         the target, which is sized before a second pass writes every chunk
+ *         into its own mapping of it. Since no mapping is larger than a
+ *         chunk, files over 2 GB work; mappings are released by the garbage
+ *         collector.
+ *         </p>
+ */
+public final class BulkUnifier
+{
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The progress of {@link BulkUnifier#unify(Path, Path, Progress)}.
+     */
+    public interface Progress
+    {
+
+        /**
+         * Called after each chunk is written, from the thread that wrote it,
+         * so possibly from several threads at once.
+         *
+         * @param done
+         *            the source bytes unified so far
+         * @param total
+         *            the length of the source
+         * @param nanos
+         *            the time since the start, counting pass included;
+         *            <code>done * 1e9 / nanos</code> is the throughput in
+         *            bytes per second
+         */
+        void progress(long done, long total, long nanos);
+
+    }
+
+    private final ForkJoinPool pool;
+
+    private final int chunkSize;
+
+    public BulkUnifier()
+    {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param pool
+     *            runs a task for each chunk
+     * @param chunkSize
+     *            source bytes mapped at a time; a chunk is up to three bytes
+     *            longer to end at a char boundary
+     */
+    public BulkUnifier(ForkJoinPool pool, int chunkSize)
+    {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE - 3)
+            throw new IllegalArgumentException("invalid chunk size " + chunkSize);
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @see #unify(Path, Path, Progress)
+     */
+    public long unify(Path source, Path target) throws IOException
+    {
+        return unify(source, target, null);
+    }
+
+    /**
+     * Unifies <code>source</code> into <code>target</code>, creating or
+     * truncating it. The target must be another file than the source.
+     *
+     * @param progress
+     *            told of each chunk written, or null
+     * @return the length of the target
+     */
+    public long unify(Path source, Path target, Progress progress) throws IOException
+    {
+        long start = System.nanoTime();
+        if (Files.exists(target) && Files.isSameFile(source, target))
+            throw new IllegalArgumentException("target is the source " + source);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            Job job = new Job(in, out, split(in), progress, start);
+            int chunks = job.bounds.length - 1;
+            pool.invoke(new Chunks(job, 0, chunks, false));
+            long[] offsets = job.offsets;
+            for (int i = 0; i < chunks; i++)
+                offsets[i + 1] += offsets[i];
+            long length = offsets[chunks];
+            // size the target before it is mapped from several threads
+            if (length > 0)
+                out.write(ByteBuffer.allocate(1), length - 1);
+            pool.invoke(new Chunks(job, 0, chunks, true));
+            return length;
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return the offsets in the source where the chunks start, and its
+     *         length; no chunk starts with a UTF-8 continuation byte, unless
+     *         more than three of them follow each other
+     */
+    private long[] split(FileChannel in) throws IOException
+    {
+        long size = in.size();
+        long[] bounds = new long[(int) ((size + chunkSize - 1) / chunkSize) + 1];
+        int count = 1;
+        ByteBuffer probe = ByteBuffer.allocate(3);
+        for (long p = 0; p < size;)
+        {
+            long next = Math.min(p + chunkSize, size);
+            if (next < size)
+            {
+                probe.clear();
+                while (probe.hasRemaining() && in.read(probe, next + probe.position()) > 0)
+                {
+                }
+                for (int k = 0; k < probe.position() && (probe.get(k) & 0xC0) == 0x80; k++)
+                    next++;
+            }
+            bounds[count++] = next;
+            p = next;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * The state of one call to {@link BulkUnifier#unify(Path, Path, Progress)}
+     * shared by its tasks.
+     */
+    private static final class Job
+    {
+
+        final FileChannel in;
+
+        final FileChannel out;
+
+        final long[] bounds;
+
+        /**
+         * the unified length of chunk i in offsets[i + 1] after the first
+         * pass, then the offset of chunk i in the target in offsets[i]
+         */
+        final long[] offsets;
+
+        final Progress progress;
+
+        final long start;
+
+        final AtomicLong done = new AtomicLong();
+
+        Job(FileChannel in, FileChannel out, long[] bounds, Progress progress, long start)
+        {
+            this.in = in;
+            this.out = out;
+            this.bounds = bounds;
+            this.offsets = new long[bounds.length];
+            this.progress = progress;
+            this.start = start;
+        }
+
+        private MappedByteBuffer map(int chunk) throws IOException
+        {
+            return in.map(MapMode.READ_ONLY, bounds[chunk], bounds[chunk + 1] - bounds[chunk]);
+        }
+
+        void count(int chunk) throws IOException
+        {
+            offsets[chunk + 1] = Utf8Unifier.unifiedLength(map(chunk));
+        }
+
+        void write(int chunk) throws IOException
+        {
+            MappedByteBuffer src = map(chunk);
+            MappedByteBuffer dst = out.map(MapMode.READ_WRITE, offsets[chunk], offsets[chunk + 1] - offsets[chunk]);
+            CoderResult result = Utf8Unifier.unify(src, dst, true);
+            // the counting pass sized dst, so it only misfits if the source changed
+            if (!result.isUnderflow() || src.hasRemaining() || dst.hasRemaining())
+                throw new IOException("chunk " + chunk + " of the source changed while it was unified, "
+                        + src.remaining() + " bytes left, " + dst.remaining() + " bytes of room left");
+            long unified = done.addAndGet(src.limit());
+            if (progress != null)
+                progress.progress(unified, bounds[bounds.length - 1], System.nanoTime() - start);
+        }
+
+    }
+
+    /**
+     * Counts or writes a range of chunks, halving it down to one chunk a
+     * task.
+     */
+    private static final class Chunks extends RecursiveAction
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Job job;
+
+        private final int from;
+
+        private final int to;
+
+        private final boolean write;
+
+        Chunks(Job job, int from, int to, boolean write)
+        {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+            this.write = write;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > 1)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Chunks(job, from, middle, write), new Chunks(job, middle, to, write));
+                return;
+            }
+            if (from == to)
+                return;
+            try
+            {
+                if (write)
+                    job.write(from);
+                else
+                    job.count(from);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.omidbiz.persianutils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Rewrites gregorian dates in chosen columns of a CSV file to solar
+ *         dates, byte for byte, without decoding rows to Strings. The file is
+ *         streamed through one buffer, so memory use does not depend on the
+ *         file size.
+ *         </p>
+ *         <p>
+ *         A cell is converted when it starts (after an optional opening
+ *         quote) with <code>yyyy/MM/dd</code> or <code>yyyy-MM-dd</code>
+ *         not followed by another digit. Its first ten bytes are replaced by
+ *         the solar date, the same date
+ *         {@link PersianDateConverter#GregorianToSolar(String)} gives, and the
+ *         rest of the cell, such as a time of day, is copied as is. Other
+ *         cells, including headers, empty cells and dates whose solar year is
+ *         not four digits, are copied unchanged. Since the output has exactly
+ *         the length of the input, a file can also be converted in place.
+ *         </p>
+ *         <p>
+ *         Fields may be quoted with <code>"</code>; delimiters and line
+ *         breaks inside quotes do not start a new cell. The delimiter must be
+ *         a single byte (ASCII) character, so any ASCII compatible encoding
+ *         such as UTF-8 works.
+ *         </p>
+ */
+public final class CsvDateTranscoder
+{
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // an opening quote, yyyy/MM/dd and the byte after it
+    private static final int LOOKAHEAD = 12;
+
+    private final byte delimiter;
+
+    // selected[i] is true for the zero-based columns to convert
+    private final boolean[] selected;
+
+    private final int bufferSize;
+
+    /**
+     * @param delimiter
+     *            the cell delimiter, e.g. <code>','</code>
+     * @param columns
+     *            zero-based indices of the date columns
+     */
+    public CsvDateTranscoder(char delimiter, int[] columns)
+    {
+        this(delimiter, columns, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize
+     *            bytes read from the source at a time
+     */
+    public CsvDateTranscoder(char delimiter, int[] columns, int bufferSize)
+    {
+        if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' || delimiter == '\r')
+            throw new IllegalArgumentException("invalid delimiter " + delimiter);
+        if (bufferSize < LOOKAHEAD)
+            throw new IllegalArgumentException("buffer size must be at least " + LOOKAHEAD);
+        int max = -1;
+        for (int column : columns)
+        {
+            if (column < 0)
+                throw new IllegalArgumentException("invalid column " + column);
+            max = Math.max(max, column);
+        }
+        this.selected = new boolean[max + 1];
+        for (int column : columns)
+            selected[column] = true;
+        this.delimiter = (byte) delimiter;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Converts <code>source</code> into <code>target</code>, creating or
+     * truncating it.
+     *
+     * @return the number of cells converted
+     */
+    public long transcode(Path source, Path target) throws IOException
+    {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            return transcode(in, out);
+        }
+    }
+
+    /**
+     * Converts the file in place. Every write lands on bytes that were
+     * already read, so no temporary file is needed; a failure part way
+     * leaves the file partly converted.
+     *
+     * @return the number of cells converted
+     */
+    public long transcodeInPlace(Path file) throws IOException
+    {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            return transcode(in, out);
+        }
+    }
+
+    /**
+     * Copies <code>source</code> to <code>target</code> converting the
+     * selected columns. Both channels must be blocking; neither is closed.
+     *
+     * @return the number of cells converted
+     */
+    public long transcode(ReadableByteChannel source, WritableByteChannel target) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        byte[] bytes = buffer.array();
+        int length = 0;
+        boolean eof = false;
+        int column = 0;
+        boolean quoted = false;
+        boolean cellStart = true;
+        long converted = 0;
+        while (true)
+        {
+            while (!eof && length < bytes.length)
+            {
+                buffer.limit(bytes.length).position(length);
+                int read = source.read(buffer);
+                if (read < 0)
+                    eof = true;
+                else
+                    length += read;
+            }
+            int i = 0;
+            int end = length;
+            while (i < length)
+            {
+                if (cellStart)
+                {
+                    if (column < selected.length && selected[column])
+                    {
+                        // keep a date that is cut by the end of the buffer for the next read
+                        if (!eof && length - i < LOOKAHEAD)
+                        {
+                            end = i;
+                            break;
+                        }
+                        if (transcodeCell(bytes, i, length))
+                            converted++;
+                    }
+                    cellStart = false;
+                }
+                byte b = bytes[i++];
+                if (b == '"')
+                {
+                    // "" inside a quoted cell toggles twice
+                    quoted = !quoted;
+                }
+                else if (!quoted)
+                {
+                    if (b == delimiter)
+                    {
+                        column++;
+                        cellStart = true;
+                    }
+                    else if (b == '\n')
+                    {
+                        column = 0;
+                        cellStart = true;
+                    }
+                }
+            }
+            buffer.limit(end).position(0);
+            while (buffer.hasRemaining())
+                target.write(buffer);
+            System.arraycopy(bytes, end, bytes, 0, length - end);
+            length -= end;
+            if (eof && length == 0)
+                return converted;
+        }
+    }
+
+    /**
+     * Replaces the gregorian date at the start of the cell at
+     * <code>start</code> with the solar date.
+     *
+     * @return false if the cell does not start with a date, and was left as
+     *         is
+     */
+    private static boolean transcodeCell(byte[] bytes, int start, int limit)
+    {
+        int p = start;
+        if (p < limit && bytes[p] == '"')
+            p++;
+        if (limit - p < 10)
+            return false;
+        byte separator = bytes[p + 4];
+        if (!isSeparator(separator) || !isSeparator(bytes[p + 7]))
+            return false;
+        if (p + 10 < limit && isDigit(bytes[p + 10]))
+            return false;
+        int year = parseDigits(bytes, p, 4);
+        int month = parseDigits(bytes, p + 5, 2);
+        int day = parseDigits(bytes, p + 8, 2);
+        if (year < 0 || month < 0 || day < 0)
+            return false;
+        int solar = PersianDateConverter.epochDayToSolar(PersianDateConverter.gregorianToEpochDay(year, month, day));
+        int solarYear = PersianDateConverter.packedYear(solar);
+        if (solarYear < 1000 || solarYear > 9999)
+            return false;
+        writeDigits(bytes, p, solarYear, 4);
+        bytes[p + 4] = separator;
+        writeDigits(bytes, p + 5, PersianDateConverter.packedMonth(solar), 2);
+        bytes[p + 7] = separator;
+        writeDigits(bytes, p + 8, PersianDateConverter.packedDay(solar), 2);
+        return true;
+    }
+
+    /**
+     * @return the value of <code>count</code> ASCII digits, or -1 if one of
+     *         them is not a digit
+     */
+    private static int parseDigits(byte[] bytes, int start, int count)
+    {
+        int value = 0;
+        for (int i = start; i < start + count; i++)
+        {
+            byte b = bytes[i];
+            if (!isDigit(b))
+                return -1;
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static void writeDigits(byte[] bytes, int start, int value, int count)
+    {
+        for (int i = start + count - 1; i >= start; i--)
+        {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static boolean isDigit(byte b)
+    {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isSeparator(byte b)
+    {
+        return b == '/' || b == '-';
+    }
+
+}
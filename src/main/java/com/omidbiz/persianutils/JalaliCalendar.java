@@ -1,6 +1,7 @@
 package com.omidbiz.persianutils;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
@@ -273,6 +274,9 @@ public final class JalaliCalendar extends Calendar {
     private static final int BASE_YEAR = 1375; // EPOCH_YEAR - 1, should be start of a
     // 33 year cycle
 
+    // Farvardin 1 of every year in the year table window, see JalaliYearTable
+    private static final JalaliYearTable YEAR_STARTS = createYearTable();
+
     private static final int NUM_DAYS[]
             = {0, 31, 62, 93, 124, 155, 186, 216, 246, 276, 306, 336}; // 0-based, for day-in-year
     private static final int MONTH_LENGTH[]
@@ -289,6 +293,9 @@ public final class JalaliCalendar extends Calendar {
     private static final long ONE_DAY = 24 * ONE_HOUR;
     private static final long ONE_WEEK = 7 * ONE_DAY;
 
+    // ERA through DAY_OF_WEEK_IN_MONTH, the fields timeToFields computes
+    private static final int DAY_FIELD_COUNT = DAY_OF_WEEK_IN_MONTH + 1;
+
     /*
      * <pre>
      *                            Greatest       Least
@@ -298,7 +305,7 @@ public final class JalaliCalendar extends Calendar {
      * YEAR                    1         1   292269054   292278994
      * MONTH                   0         0          11          11
      * WEEK_OF_YEAR            1         1          52          53
-     * WEEK_OF_MONTH           0         0           5           6
+     * WEEK_OF_MONTH           0         0           4           6
      * DAY_OF_MONTH            1         1          29          31
      * DAY_OF_YEAR             1         1         365         366
      * DAY_OF_WEEK             1         1           7           7
@@ -318,7 +325,7 @@ public final class JalaliCalendar extends Calendar {
             0, 1, 0, 1, 0, 1, 1, 1, -1, 0, 0, 0, 0, 0, 0, -12 * ONE_HOUR, 0
     };
     private static final int LEAST_MAX_VALUES[] = {
-            1, 292269054, 11, 52, 5, 29, 365, 7, 4, 1, 11, 23, 59, 59, 999, 12 * ONE_HOUR, ONE_HOUR
+            1, 292269054, 11, 52, 4, 29, 365, 7, 4, 1, 11, 23, 59, 59, 999, 12 * ONE_HOUR, ONE_HOUR
     };
     private static final int MAX_VALUES[] = {
             1, 292278994, 11, 53, 6, 31, 366, 7, 6, 1, 11, 23, 59, 59, 999, 12 * ONE_HOUR, ONE_HOUR
@@ -331,6 +338,40 @@ public final class JalaliCalendar extends Calendar {
     // Proclaim serialization compatiblity with JDK 1.1
     static final long serialVersionUID = -5468927952461089424L;
 
+    /**
+     * The stamp of each field, as Calendar keeps in its private
+     * <code>stamp[]</code>: UNSET, COMPUTED or the (pseudo) time the field
+     * was set. Only meaningful while <code>isSet[]</code> is true for the
+     * field, since the final <code>clear</code> methods only reset that.
+     */
+    private transient int[] stamps = new int[FIELD_COUNT];
+
+    /**
+     * The stamp given to the next field set with <code>set</code>.
+     */
+    private transient int nextStamp = MINIMUM_USER_STAMP;
+
+    /**
+     * Offsets of the time zone, looked up when first needed after the zone
+     * is set.
+     */
+    private transient ZoneOffsetTable zoneOffsets;
+
+    /**
+     * Whether computeFields reuses the date fields of the previous local day,
+     * see {@link #setSameDayFastPath(boolean)}.
+     */
+    private transient boolean sameDayFastPath;
+
+    /**
+     * The date fields, ERA through DAY_OF_WEEK_IN_MONTH, that computeFields
+     * last computed for the local day <code>dayFieldsDay</code>. Null while
+     * there are none to reuse.
+     */
+    private transient int[] dayFields;
+
+    private transient long dayFieldsDay;
+
 ///////////////
 // Constructors
 ///////////////
@@ -375,6 +416,18 @@ public final class JalaliCalendar extends Calendar {
         setTimeInMillis(System.currentTimeMillis());
     }
 
+    /**
+     * Constructs a JalaliCalendar at the given time with the given settings,
+     * as read from its serialized form.
+     */
+    JalaliCalendar(TimeZone zone, long millis, boolean lenient, int firstDayOfWeek, int minimalDaysInFirstWeek) {
+        super(zone, Locale.getDefault());
+        setLenient(lenient);
+        setFirstDayOfWeek(firstDayOfWeek);
+        setMinimalDaysInFirstWeek(minimalDaysInFirstWeek);
+        setTimeInMillis(millis);
+    }
+
     /**
      * Constructs a JalaliCalendar with the given date set
      * in the default time zone with the default locale.
@@ -455,7 +508,9 @@ public final class JalaliCalendar extends Calendar {
      * @return true if the given year is a leap year; false otherwise.
      */
     public static boolean isLeapYear(int year) {
+        // floored, so that years before 1 AH follow the same 33-year cycle
         int mod = (year + 11) % 33;
+        if (mod < 0) mod += 33;
         return mod % 4 == 0 && mod != 32;
     }
 
@@ -469,6 +524,96 @@ public final class JalaliCalendar extends Calendar {
         return obj instanceof JalaliCalendar && super.equals(obj);
     }
 
+    /**
+     * Overrides Calendar
+     * Sets the given time field, stamping it so that the most recently set
+     * fields win when the time is computed.
+     *
+     * @param field the given time field.
+     * @param value the value to be set for the given time field.
+     */
+    public void set(int field, int value) {
+        super.set(field, value);
+        stamps[field] = nextStamp++;
+        if (nextStamp == Integer.MAX_VALUE) adjustStamps();
+    }
+
+    /**
+     * Overrides Calendar
+     * Creates and returns a copy of this object.
+     */
+    public Object clone() {
+        JalaliCalendar other = (JalaliCalendar) super.clone();
+        other.stamps = stamps.clone();
+        // the copy has a copy of the zone
+        other.zoneOffsets = null;
+        if (dayFields != null) {
+            other.dayFields = dayFields.clone();
+        }
+        return other;
+    }
+
+    /**
+     * Overrides Calendar
+     * Sets what the first day of the week is.
+     *
+     * @param value the given first day of the week.
+     */
+    public void setFirstDayOfWeek(int value) {
+        super.setFirstDayOfWeek(value);
+        dayFields = null;
+    }
+
+    /**
+     * Overrides Calendar
+     * Sets what the minimal days required in the first week of the year are.
+     *
+     * @param value the given minimal days required in the first week
+     *              of the year.
+     */
+    public void setMinimalDaysInFirstWeek(int value) {
+        super.setMinimalDaysInFirstWeek(value);
+        dayFields = null;
+    }
+
+    /**
+     * Sets whether computing the fields from the time reuses the date fields
+     * of the previous computation.  When the new time is on the same local
+     * day only the time of day fields are computed, and on the next local
+     * day the date fields are advanced by one day instead of being computed
+     * from the year cycles.  This suits streams of sorted times through one
+     * calendar.  The fields are the same either way; the fast path is off
+     * by default.
+     *
+     * @param on true to reuse the date fields of the previous local day.
+     */
+    public void setSameDayFastPath(boolean on) {
+        sameDayFastPath = on;
+        if (!on) dayFields = null;
+    }
+
+    /**
+     * Tells whether computing the fields reuses the date fields of the
+     * previous local day.
+     *
+     * @return true if the same day fast path is on.
+     * @see #setSameDayFastPath(boolean)
+     */
+    public boolean isSameDayFastPath() {
+        return sameDayFastPath;
+    }
+
+    /**
+     * Overrides Calendar
+     * Sets the time zone with the given time zone value.
+     *
+     * @param value the given time zone.
+     */
+    public void setTimeZone(TimeZone value) {
+        super.setTimeZone(value);
+        zoneOffsets = null;
+    }
+
     /**
      * Overrides Calendar
      * Date Arithmetic function.
@@ -483,42 +628,29 @@ public final class JalaliCalendar extends Calendar {
         if (amount == 0) return;   // Do nothing!
         complete();
 
-        if (field == YEAR) {
-            int year = this.internalGet(YEAR);
-            if (this.internalGetEra() == AH) {
+        if (field == YEAR || field == MONTH) {
+            int oldYear = internalGetEra() == AH ? internalGet(YEAR) : 1 - internalGet(YEAR);
+            int year = oldYear;
+            int month = internalGet(MONTH);
+            if (field == YEAR) {
                 year += amount;
-                if (year > 0)
-                    this.set(YEAR, year);
-                else { // year <= 0
-                    this.set(YEAR, 1 - year);
-                    // if year == 0, you get 1 BH
-                    this.set(ERA, BH);
-                }
-            } else { // era == BH
-                year -= amount;
-                if (year > 0)
-                    this.set(YEAR, year);
-                else { // year <= 0
-                    this.set(YEAR, 1 - year);
-                    // if year == 0, you get 1 AH
-                    this.set(ERA, AH);
-                }
+            } else {
+                month += amount;
+                int years = floorDivide(month, 12);
+                year += years;
+                month -= years * 12;
             }
-            pinDayOfMonth();
-        } else if (field == MONTH) {
-            int month = this.internalGet(MONTH) + amount;
-            if (month >= 0) {
-                set(YEAR, internalGet(YEAR) + (month / 12));
-                set(MONTH, (month % 12));
-            } else { // month < 0
-
-                set(YEAR, internalGet(YEAR) + ((month + 1) / 12) - 1);
-                month %= 12;
-                if (month < 0) month += 12;
-                //noinspection PointlessArithmeticExpression
-                set(MONTH, FARVARDIN + month);
+            // Keep the day of month in range, as pinDayOfMonth does
+            int date = Math.min(internalGet(DAY_OF_MONTH), monthLength(month, year));
+            long days = NUM_DAYS[month] + date - internalGet(DAY_OF_YEAR);
+            if (year != oldYear) days += jalaliYearStart(year) - jalaliYearStart(oldYear);
+            if (!addDaysInPlace(days, true)) {
+                // if year <= 0, you get BH
+                set(ERA, year > 0 ? AH : BH);
+                set(YEAR, year > 0 ? year : 1 - year);
+                set(MONTH, month);
+                pinDayOfMonth();
             }
-            pinDayOfMonth();
         } else if (field == ERA) {
             int era = internalGet(ERA) + amount;
             if (era < 0) era = 0;
@@ -546,6 +678,7 @@ public final class JalaliCalendar extends Calendar {
                 case WEEK_OF_YEAR:
                 case WEEK_OF_MONTH:
                 case DAY_OF_WEEK_IN_MONTH:
+                    if (addDaysInPlace(7L * amount, false)) return;
                     delta *= 7 * 24 * 60 * 60 * 1000; // 7 days
                     break;
 
@@ -556,6 +689,7 @@ public final class JalaliCalendar extends Calendar {
                 case DATE: // synonym of DAY_OF_MONTH
                 case DAY_OF_YEAR:
                 case DAY_OF_WEEK:
+                    if (addDaysInPlace(amount, false)) return;
                     delta *= 24 * 60 * 60 * 1000; // 1 day
                     break;
 
@@ -585,17 +719,27 @@ public final class JalaliCalendar extends Calendar {
                     throw new IllegalArgumentException();
             }
 
-            // Save the current DST state.
-            long dst = 0;
-            if (adjustDST) dst = internalGet(DST_OFFSET);
+            // Save the current offset; the raw offset of a zone changes too.
+            long offset = 0;
+            long day = 0;
+            if (adjustDST) {
+                offset = internalGet(ZONE_OFFSET) + internalGet(DST_OFFSET);
+                day = Math.floorDiv(time + offset + delta, ONE_DAY);
+            }
 
             setTimeInMillis(time + delta); // Automatically computes fields if necessary
 
             if (adjustDST) {
                 // Now do the DST adjustment alluded to above.
                 // Only call setTimeInMillis if necessary, because it's an expensive call.
-                dst -= internalGet(DST_OFFSET);
-                if (delta != 0) setTimeInMillis(time + dst);
+                offset -= internalGet(ZONE_OFFSET) + internalGet(DST_OFFSET);
+                if (offset != 0) {
+                    setTimeInMillis(time + offset);
+                    // A wall time skipped at midnight would change the date;
+                    // keep the later one, as GregorianCalendar does.
+                    if (Math.floorDiv(time + internalGet(ZONE_OFFSET) + internalGet(DST_OFFSET), ONE_DAY) != day)
+                        setTimeInMillis(time - offset);
+                }
             }
         }
     }
@@ -670,7 +814,6 @@ public final class JalaliCalendar extends Calendar {
             {
                 int mon = (internalGet(MONTH) + amount) % 12;
                 if (mon < 0) mon += 12;
-                set(MONTH, mon);
 
                 // Keep the day of month in range.  We don't want to spill over
                 // into the next month; e.g., we don't want farv31 + 1 mo -> ordi31 ->
@@ -679,6 +822,8 @@ public final class JalaliCalendar extends Calendar {
                 // first.  Do this if there appears to be a need. [LIU]
                 int monthLen = monthLength(mon);
                 int dom = internalGet(DAY_OF_MONTH);
+                if (addDaysInPlace(NUM_DAYS[mon] + Math.min(dom, monthLen) - internalGet(DAY_OF_YEAR), true)) return;
+                set(MONTH, mon);
                 if (dom > monthLen) set(DAY_OF_MONTH, monthLen);
                 return;
             }
@@ -805,6 +950,7 @@ public final class JalaliCalendar extends Calendar {
                 // disambiguation algorithm changes) then we will have to unset
                 // the appropriate fields here so that DAY_OF_MONTH is attended
                 // to.
+                if (addDaysInPlace(day_of_month - internalGet(DAY_OF_MONTH), true)) return;
                 set(DAY_OF_MONTH, day_of_month);
                 return;
             }
@@ -817,9 +963,9 @@ public final class JalaliCalendar extends Calendar {
                 long delta = amount * ONE_DAY; // Scale up from days to millis
                 long min2 = time - (internalGet(DAY_OF_YEAR) - 1) * ONE_DAY;
                 int yearLength = yearLength();
-                time = (time + delta - min2) % (yearLength * ONE_DAY);
-                if (time < 0) time += yearLength * ONE_DAY;
-                setTimeInMillis(time + min2);
+                long newTime = (time + delta - min2) % (yearLength * ONE_DAY);
+                if (newTime < 0) newTime += yearLength * ONE_DAY;
+                setTimeByDays(newTime + min2);
                 return;
             }
             case DAY_OF_WEEK: {
@@ -832,9 +978,9 @@ public final class JalaliCalendar extends Calendar {
                 int leadDays = internalGet(DAY_OF_WEEK) - getFirstDayOfWeek();
                 if (leadDays < 0) leadDays += 7;
                 long min2 = time - leadDays * ONE_DAY;
-                time = (time + delta - min2) % ONE_WEEK;
-                if (time < 0) time += ONE_WEEK;
-                setTimeInMillis(time + min2);
+                long newTime = (time + delta - min2) % ONE_WEEK;
+                if (newTime < 0) newTime += ONE_WEEK;
+                setTimeByDays(newTime + min2);
                 return;
             }
             case DAY_OF_WEEK_IN_MONTH: {
@@ -853,9 +999,9 @@ public final class JalaliCalendar extends Calendar {
                 long min2 = time - preWeeks * ONE_WEEK;
                 long gap2 = ONE_WEEK * (preWeeks + postWeeks + 1); // Must add 1!
                 // Roll within this range
-                time = (time + delta - min2) % gap2;
-                if (time < 0) time += gap2;
-                setTimeInMillis(time + min2);
+                long newTime = (time + delta - min2) % gap2;
+                if (newTime < 0) newTime += gap2;
+                setTimeByDays(newTime + min2);
                 return;
             }
             case ZONE_OFFSET:
@@ -874,9 +1020,87 @@ public final class JalaliCalendar extends Calendar {
         if (value < 0) value += gap;
         value += min;
 
+        if (field == DAY_OF_MONTH && addDaysInPlace(value - internalGet(DAY_OF_MONTH), true)) return;
         set(field, value);
     }
 
+    /**
+     * Sets the time of a complete calendar to a time whole days from it, as
+     * setTimeInMillis does.
+     */
+    private void setTimeByDays(long millis) {
+        if (!addDaysInPlace((millis - time) / ONE_DAY, false)) {
+            setTimeInMillis(millis);
+        }
+    }
+
+    /**
+     * Adds whole days to the time of a complete calendar by moving its date
+     * fields from their current values, without computing the fields again.
+     * This is only done if the zone offsets at the new time are those of the
+     * ZONE_OFFSET and DST_OFFSET fields, so that the time of day fields stay
+     * as they are.
+     *
+     * @param days the number of days to add.
+     * @param wall if true, the offsets must also be those that computeTime
+     *             would find for the new wall time, as after setting the date
+     *             fields.
+     * @return false if the offsets change or the time overflows, in which case
+     *         the calendar is left as it is.
+     */
+    private boolean addDaysInPlace(long days, boolean wall) {
+        if (days > Long.MAX_VALUE / ONE_DAY || days < Long.MIN_VALUE / ONE_DAY) return false;
+        long delta = days * ONE_DAY;
+        long newTime = time + delta;
+        int rawOffset = internalGet(ZONE_OFFSET);
+        int dstOffset = internalGet(DST_OFFSET);
+        long localMillis = newTime + rawOffset + dstOffset;
+        // Overflow of the time or of the wall millis, which computeFields pins
+        if (((time ^ newTime) & (delta ^ newTime)) < 0
+                || localMillis != localMillis(newTime, rawOffset + dstOffset)) {
+            return false;
+        }
+        ZoneOffsetTable offsets = zoneOffsets();
+        long atUtc = offsets.atUtc(newTime);
+        if (ZoneOffsetTable.rawOffset(atUtc) != rawOffset || ZoneOffsetTable.dstOffset(atUtc) != dstOffset) {
+            return false;
+        }
+        if (wall) {
+            long atWall = offsets.atWall(localMillis);
+            if (ZoneOffsetTable.rawOffset(atWall) != rawOffset || ZoneOffsetTable.dstOffset(atWall) != dstOffset) {
+                return false;
+            }
+        }
+
+        int rawYear = internalGetEra() == AH ? internalGet(YEAR) : 1 - internalGet(YEAR);
+        long dayOfYear = internalGet(DAY_OF_YEAR) - 1 + days; // 0-based
+        if (dayOfYear < -4 * 366 || dayOfYear >= 4 * 366) {
+            // Too many years away to step through them
+            timeToFields(localMillis, false);
+        } else {
+            while (dayOfYear < 0) {
+                dayOfYear += yearLength(--rawYear);
+            }
+            for (int length = yearLength(rawYear); dayOfYear >= length; length = yearLength(rawYear)) {
+                dayOfYear -= length;
+                ++rawYear;
+            }
+            int month = monthOfDayOfYear((int) dayOfYear);
+            int date = (int) dayOfYear - NUM_DAYS[month] + 1;
+            int dayOfWeek = addDays(internalGet(DAY_OF_WEEK), (int) (days % 7));
+            internalSet(ERA, rawYear < 1 ? BH : AH);
+            internalSet(YEAR, rawYear < 1 ? 1 - rawYear : rawYear);
+            internalSet(MONTH, month);
+            internalSet(DATE, date);
+            internalSet(DAY_OF_WEEK, dayOfWeek);
+            internalSet(DAY_OF_YEAR, (int) dayOfYear + 1);
+            computeWeekFields(rawYear, (int) dayOfYear + 1, dayOfWeek, date,
+                    getFirstDayOfWeek(), getMinimalDaysInFirstWeek(), fields);
+        }
+        time = newTime;
+        return true;
+    }
+
     /**
      * Returns minimum value for the given field.
      * e.g. for Jalali DAY_OF_MONTH, 1
@@ -936,65 +1160,92 @@ public final class JalaliCalendar extends Calendar {
      * @since 1.2
      */
     public int getActualMaximum(int field) {
+        complete();
+        return actualMaximum(field);
+    }
+
+    /**
+     * Returns the maximum values that the given fields could have, given the
+     * current date, computing the fields only once.
+     *
+     * @param fields the time fields.
+     * @param maximums receives the actual maximum of <code>fields[i]</code> at
+     *                 index i.
+     * @see #getActualMaximum(int)
+     */
+    public void getActualMaximums(int[] fields, int[] maximums) {
+        complete();
+        for (int i = 0; i < fields.length; i++) {
+            maximums[i] = actualMaximum(fields[i]);
+        }
+    }
+
+    /**
+     * The actual maximum of the field from the completed fields, with the
+     * same arithmetic as timeToFields instead of setting and getting the
+     * field on a clone.
+     */
+    private int actualMaximum(int field) {
         switch (field) {
-            // we have functions that enable us to fast-path number of days in month
-            // of year
             case DAY_OF_MONTH:
-                return monthLength(get(MONTH));
+                return monthLength(internalGet(MONTH));
 
             case DAY_OF_YEAR:
                 return yearLength();
 
-            // for week of year, week of month, or day of week in month, we
-            // just fall back on the default implementation in Calendar (I'm not sure
-            // we could do better by having special calculations here)
-            case WEEK_OF_YEAR:
-            case WEEK_OF_MONTH:
-            case DAY_OF_WEEK_IN_MONTH:
-                return super.getActualMaximum(field);
+            case WEEK_OF_YEAR: {
+                int year = internalGet(YEAR);
+                return weeksInYear(internalGetEra() == AH ? year : 1 - year,
+                        addDays(internalGet(DAY_OF_WEEK), 1 - internalGet(DAY_OF_YEAR)),
+                        getFirstDayOfWeek(), getMinimalDaysInFirstWeek());
+            }
+
+            case WEEK_OF_MONTH: {
+                int monthLen = monthLength(internalGet(MONTH));
+                return weekNumber(monthLen, addDays(internalGet(DAY_OF_WEEK), monthLen - internalGet(DAY_OF_MONTH)));
+            }
+
+            case DAY_OF_WEEK_IN_MONTH: {
+                // the last day of the month on the same day of the week
+                int date = internalGet(DAY_OF_MONTH);
+                int last = date + (monthLength(internalGet(MONTH)) - date) / 7 * 7;
+                return (last - 1) / 7 + 1;
+            }
 
             case YEAR:
-                /* The year computation is no different, in principle, from the
-                 * others, however, the range of possible maxima is large.  In
-                 * addition, the way we know we've exceeded the range is different.
-                 * For these reasons, we use the special case code below to handle
-                 * this field.
-                 *
-                 * The actual maxima for YEAR is like this:
+                /* The actual maxima for YEAR is like this:
                  *
                  *     Jalali    = 292275056 BH - 292278994 AH
                  *
-                 * We know we've exceeded the maximum when either the month, date,
-                 * time, or era changes in response to setting the year.  We don't
-                 * check for month, date, and time here because the year and era are
-                 * sufficient to detect an invalid year setting.  NOTE: If code is
-                 * added to check the month and date in the future for some reason,
-                 * Esf 30 must be allowed to shift to Farv 1 when setting the year.
+                 * that is, the year of Long.MAX_VALUE (Long.MIN_VALUE in BH),
+                 * or the year before when this date of the year comes later
+                 * (earlier in BH) than that instant in its year.  Esf 30 must
+                 * be allowed to shift to Farv 1 when setting the year, so only
+                 * the day of the year and the time count.
                  */
             {
-                Calendar cal = (Calendar) this.clone();
-                cal.setLenient(true);
-
-                int era = cal.get(ERA);
-                Date d = cal.getTime();
-
-                /* Perform a binary search, with the invariant that lowGood is a
-                * valid year, and highBad is an out of range year.
-                */
-                int lowGood = LEAST_MAX_VALUES[YEAR];
-                int highBad = MAX_VALUES[YEAR] + 1;
-                while ((lowGood + 1) < highBad) {
-                    int y = (lowGood + highBad) / 2;
-                    cal.set(YEAR, y);
-                    if (cal.get(YEAR) == y && cal.get(ERA) == era) {
-                        lowGood = y;
-                    } else {
-                        highBad = y;
-                        cal.setTime(d); // Restore original fields
-                    }
+                boolean ah = internalGetEra() == AH;
+                long limit = ah ? Long.MAX_VALUE : Long.MIN_VALUE;
+                long offsets = zoneOffsets().atUtc(limit);
+                int zoneOffset = ZoneOffsetTable.rawOffset(offsets) + ZoneOffsetTable.dstOffset(offsets);
+                long localMillis = limit + zoneOffset;
+                // As in computeFields, pin the values that wrap around
+                if (ah && zoneOffset > 0 && localMillis < 0) {
+                    localMillis = Long.MAX_VALUE;
+                } else if (!ah && zoneOffset < 0 && localMillis > 0) {
+                    localMillis = Long.MIN_VALUE;
                 }
-
-                return lowGood;
+                long limitDays = floorDivide(localMillis, ONE_DAY);
+                long yearAndDay = yearAndDayOfYear(limitDays);
+                int limitYear = (int) (yearAndDay >> 16);
+                long limitInYear = (yearAndDay & 0xFFFF) * ONE_DAY + (localMillis - limitDays * ONE_DAY);
+                long current = (internalGet(DAY_OF_YEAR) - 1) * ONE_DAY
+                        + ((internalGet(HOUR_OF_DAY) * 60L + internalGet(MINUTE)) * 60 + internalGet(SECOND)) * 1000
+                        + internalGet(MILLISECOND);
+                if (ah) {
+                    return current > limitInYear ? limitYear - 1 : limitYear;
+                }
+                return current < limitInYear ? -limitYear : 1 - limitYear;
             }
 
             // and we know none of the other fields have variable maxima in
@@ -1004,6 +1255,15 @@ public final class JalaliCalendar extends Calendar {
         }
     }
 
+    /**
+     * @return the day of the week <code>days</code> after the given one
+     */
+    private static int addDays(int dayOfWeek, int days) {
+        int dow = (dayOfWeek - SUNDAY + days) % 7;
+        if (dow < 0) dow += 7;
+        return dow + SUNDAY;
+    }
+
 //////////////////////
 // Proposed public API
 //////////////////////
@@ -1071,87 +1331,166 @@ public final class JalaliCalendar extends Calendar {
      * @see java.util.Calendar#complete
      */
     protected void computeFields() {
-        int rawOffset = getTimeZone().getRawOffset();
-        long localMillis = time + rawOffset;
-
-        /* Check for very extreme values -- millis near Long.MIN_VALUE or
-         * Long.MAX_VALUE.  For these values, adding the zone offset can push
-         * the millis past MAX_VALUE to MIN_VALUE, or vice versa.  This produces
-         * the undesirable effect that the time can wrap around at the ends,
-         * yielding, for example, a Date(Long.MAX_VALUE) with a big BH year
-         * (should be AH).  Handle this by pinning such values to Long.MIN_VALUE
-         * or Long.MAX_VALUE. */
-        if (time > 0 && localMillis < 0 && rawOffset > 0) {
-            localMillis = Long.MAX_VALUE;
-        } else if (time < 0 && localMillis > 0 && rawOffset < 0) {
-            localMillis = Long.MIN_VALUE;
-        }
+        long offsets = zoneOffsets().atUtc(time);
+        int rawOffset = ZoneOffsetTable.rawOffset(offsets);
+        int dstOffset = ZoneOffsetTable.dstOffset(offsets);
+        long localMillis = localMillis(time, rawOffset + dstOffset);
 
         // Time to fields takes the wall millis (Standard or DST).
-        timeToFields(localMillis, false);
-
-        // commented by Amir Pashazadeh
-//        int era = internalGetEra();
-//        int year = internalGet(YEAR);
-//        int month = internalGet(MONTH);
-//        int date = internalGet(DATE);
-//        int dayOfWeek = internalGet(DAY_OF_WEEK);
-
-        long days = (localMillis / ONE_DAY);
-        int millisInDay = (int) (localMillis - (days * ONE_DAY));
-        if (millisInDay < 0) millisInDay += ONE_DAY;
-
-        // Call getOffset() to get the TimeZone offset.  The millisInDay value must
-        // be standard local millis.
-        // TBD: getOffset assumes a GregorianCalendar
-        int dstOffset = 0/*getTimeZone().getOffset(era,year,month,date,dayOfWeek,millisInDay)
-                        - rawOffset*/;
-
-        // Adjust our millisInDay for DST, if necessary.
-        millisInDay += dstOffset;
-
-        // If DST has pushed us into the next day, we must call timeToFields() again.
-        // This happens in DST between 12:00 am and 1:00 am every day.  The call to
-        // timeToFields() will give the wrong day, since the Standard time is in the
-        // previous day.
-        if (millisInDay >= ONE_DAY) {
-            long dstMillis = localMillis + dstOffset;
-            millisInDay -= ONE_DAY;
-            // As above, check for and pin extreme values
-            if (localMillis > 0 && dstMillis < 0 && dstOffset > 0) {
-                dstMillis = Long.MAX_VALUE;
-            } else if (localMillis < 0 && dstMillis > 0 && dstOffset < 0) {
-                dstMillis = Long.MIN_VALUE;
+        if (sameDayFastPath) {
+            long localDay = floorDivide(localMillis, ONE_DAY);
+            if (!reuseDayFields(localDay)) {
+                timeToFields(localMillis, false);
+                saveDayFields(localDay);
             }
-            timeToFields(dstMillis, false);
+        } else {
+            timeToFields(localMillis, false);
         }
 
-        // Fill in all time-related fields based on millisInDay.  Call internalSet()
-        // so as not to perturb flags.
-        internalSet(MILLISECOND, millisInDay % 1000);
-        millisInDay /= 1000;
-        internalSet(SECOND, millisInDay % 60);
-        millisInDay /= 60;
-        internalSet(MINUTE, millisInDay % 60);
-        millisInDay /= 60;
-        internalSet(HOUR_OF_DAY, millisInDay);
-        internalSet(AM_PM, millisInDay / 12); // Assume AM == 0
-        internalSet(HOUR, millisInDay % 12);
-
-        internalSet(ZONE_OFFSET, rawOffset);
-        internalSet(DST_OFFSET, dstOffset);
+        // Call the static versions of internalSet() so as not to perturb
+        // flags.
+        timeOfDayToFields(localMillis, fields);
+        fields[ZONE_OFFSET] = rawOffset;
+        fields[DST_OFFSET] = dstOffset;
 
         // Careful here: We are manually setting the time stamps[] flags to
         // INTERNALLY_SET, so we must be sure that the above code actually does
         // set all these fields.
+        // Calendar.set marks the fields as set for the final isSet(int), the
+        // flags it clears are put back as they were.
+        boolean timeSet = isTimeSet;
+        areFieldsSet = false;
         for (int i = 0; i < FIELD_COUNT; ++i) {
-            setStamp(i, COMPUTED);
-            isSet[i] = true; // Remove later
+            super.set(i, fields[i]);
+            stamps[i] = COMPUTED;
+        }
+        isTimeSet = timeSet;
+    }
+
+    /**
+     * Computes the fields of each of the times in the given range of
+     * <code>millis</code>, as a <code>JalaliCalendar</code> set to the zone,
+     * the first day of the week and the minimal days in the first week
+     * would, without a calendar for each time.  Field
+     * <code>fields[k]</code> of <code>millis[offset + i]</code> goes to
+     * <code>columns[k][columnOffset + i]</code>.
+     * <p/>
+     * The week fields are left out when none of them is asked for, and the
+     * date of a time on the same local day as the previous one is reused,
+     * so a sorted batch costs little more than its time of day fields.
+     *
+     * @param millis                 the times, milliseconds since the epoch.
+     * @param offset                 the index of the first time.
+     * @param length                 the number of times.
+     * @param zone                   the time zone.
+     * @param firstDayOfWeek         the first day of the week, as given to
+     *                               {@link #setFirstDayOfWeek(int)}.
+     * @param minimalDaysInFirstWeek the minimal days in the first week, as given
+     *                               to {@link #setMinimalDaysInFirstWeek(int)}.
+     * @param fields                 the calendar fields to compute, such as
+     *                               <code>YEAR</code> or <code>WEEK_OF_YEAR</code>.
+     * @param columns                the column of each of the fields.
+     * @param columnOffset           the index in the columns of the first time.
+     * @throws IllegalArgumentException  if a field is not a calendar field or
+     *                                   there are fewer columns than fields.
+     * @throws IndexOutOfBoundsException if a range is out of its array.
+     */
+    public static void timesToFields(long[] millis, int offset, int length, TimeZone zone,
+                                     int firstDayOfWeek, int minimalDaysInFirstWeek,
+                                     int[] fields, int[][] columns, int columnOffset) {
+        if (columns.length < fields.length) {
+            throw new IllegalArgumentException(columns.length + " columns for " + fields.length + " fields");
+        }
+        boolean weekFields = false;
+        boolean timeFields = false;
+        for (int k = 0; k < fields.length; k++) {
+            int field = fields[k];
+            if (field < 0 || field >= FIELD_COUNT) {
+                throw new IllegalArgumentException("field " + field);
+            }
+            if (length > 0 && (columnOffset < 0 || columnOffset + length > columns[k].length)) {
+                throw new IndexOutOfBoundsException("column " + k + ": " + columnOffset + " + " + length);
+            }
+            weekFields |= field == WEEK_OF_YEAR || field == WEEK_OF_MONTH || field == DAY_OF_WEEK_IN_MONTH;
+            timeFields |= field >= DAY_FIELD_COUNT;
+        }
+        if (offset < 0 || length < 0 || offset + length > millis.length || offset + length < 0) {
+            throw new IndexOutOfBoundsException(offset + " + " + length);
+        }
+
+        ZoneOffsetTable offsets = ZoneOffsetTable.of(zone);
+        int[] values = new int[FIELD_COUNT];
+        long lastDay = 0;
+        for (int i = 0; i < length; i++) {
+            long time = millis[offset + i];
+            long zoneOffsets = offsets.atUtc(time);
+            int rawOffset = ZoneOffsetTable.rawOffset(zoneOffsets);
+            int dstOffset = ZoneOffsetTable.dstOffset(zoneOffsets);
+            long localMillis = localMillis(time, rawOffset + dstOffset);
+
+            long localDay = floorDivide(localMillis, ONE_DAY);
+            if (i == 0 || localDay != lastDay) {
+                timeToFields(localMillis, !weekFields, firstDayOfWeek, minimalDaysInFirstWeek, values);
+                lastDay = localDay;
+            }
+            if (timeFields) {
+                timeOfDayToFields(localMillis, values);
+                values[ZONE_OFFSET] = rawOffset;
+                values[DST_OFFSET] = dstOffset;
+            }
+            for (int k = 0; k < fields.length; k++) {
+                columns[k][columnOffset + i] = values[fields[k]];
+            }
+        }
+    }
+
+    /**
+     * Returns the wall millis of a time in the given zone offset.
+     * <p/>
+     * Check for very extreme values -- millis near Long.MIN_VALUE or
+     * Long.MAX_VALUE.  For these values, adding the zone offset can push
+     * the millis past MAX_VALUE to MIN_VALUE, or vice versa.  This produces
+     * the undesirable effect that the time can wrap around at the ends,
+     * yielding, for example, a Date(Long.MAX_VALUE) with a big BH year
+     * (should be AH).  Handle this by pinning such values to Long.MIN_VALUE
+     * or Long.MAX_VALUE.
+     */
+    private static long localMillis(long time, int zoneOffset) {
+        long localMillis = time + zoneOffset;
+        if (time > 0 && localMillis < 0 && zoneOffset > 0) {
+            localMillis = Long.MAX_VALUE;
+        } else if (time < 0 && localMillis > 0 && zoneOffset < 0) {
+            localMillis = Long.MIN_VALUE;
         }
+        return localMillis;
+    }
+
+    /**
+     * Fills in all time-related fields, MILLISECOND through HOUR, based on
+     * the millis in the day of the wall millis.
+     */
+    private static void timeOfDayToFields(long localMillis, int[] fields) {
+        long days = (localMillis / ONE_DAY);
+        int millisInDay = (int) (localMillis - (days * ONE_DAY));
+        if (millisInDay < 0) millisInDay += ONE_DAY;
+
+        fields[MILLISECOND] = millisInDay % 1000;
+        millisInDay /= 1000;
+        fields[SECOND] = millisInDay % 60;
+        millisInDay /= 60;
+        fields[MINUTE] = millisInDay % 60;
+        millisInDay /= 60;
+        fields[HOUR_OF_DAY] = millisInDay;
+        fields[AM_PM] = millisInDay / 12; // Assume AM == 0
+        fields[HOUR] = millisInDay % 12;
     }
 
     // --BE
 
+    private void timeToFields(long theTime, boolean quick) {
+        timeToFields(theTime, quick, getFirstDayOfWeek(), getMinimalDaysInFirstWeek(), fields);
+    }
+
     /**
      * Convert the time as milliseconds to the date fields.  Millis must be
      * given as local wall millis to get the correct local day.  For example,
@@ -1166,36 +1505,19 @@ public final class JalaliCalendar extends Calendar {
      *                whichever is in effect
      * @param quick   if true, only compute the ERA, YEAR, MONTH, DATE,
      *                DAY_OF_WEEK, and DAY_OF_YEAR.
+     * @param fields  the fields to set, indexed by field number.
      */
-    private void timeToFields(long theTime, boolean quick) {
+    private static void timeToFields(long theTime, boolean quick, int firstDayOfWeek,
+                                     int minimalDaysInFirstWeek, int[] fields) {
         int rawYear, year, month, date, dayOfWeek, dayOfYear, /*weekCount, */era;
 //        boolean isLeap;
 
         // Compute the year, month, and day of month from the given millis.
         // The Jalali internal day we use is zero for Friday Farvardin 1, 1376.
         long jalaliEpochDay = millisToJalaliDay(theTime) - FAR_1_1376_JALALI_DAY;
-        // Here we convert from the day number to the multiple radix
-        // representation.  We use 33-year and 4-year cycles.
-        // For example, the 4-year cycle has 4 years + 1 leap day; giving
-        // 1461 == 365*4 + 1 days, and the 33-year cycle has 33 years + 8
-        // leap day; giving 12053 == 365*33 + 8 days.
-        int[] rem = new int[1];
-        int n33 = floorDivide(jalaliEpochDay, 12053, rem); // 33-year cycle length
-        int n4 = floorDivide(rem[0], 1461, rem); // 4-year cycle length
-        int n1 = floorDivide(rem[0], 365, rem);
-        rawYear = BASE_YEAR + 33 * n33 + 4 * n4 + n1;
-        dayOfYear = rem[0]; // zero-based day of year
-        if (n4 != 7 && n1 == 4) {
-            dayOfYear = 365; // Esf 30 at end of 4-year cycle
-        } else {
-            ++rawYear;
-            if (n4 == 8) {
-                dayOfYear++; // last year of last 4-year cycle is not Leap
-                // add the extra day to next year
-            } else if (n4 == 7 && n1 == 4) {
-                dayOfYear = 0;  // 1 Farv of the last year of 33-year cycle
-            }
-        }
+        long yearAndDay = yearAndDayOfYear(floorDivide(theTime, ONE_DAY));
+        rawYear = (int) (yearAndDay >> 16);
+        dayOfYear = (int) (yearAndDay & 0xFFFF); // zero-based day of year
 
 //        isLeap = floorDivide((rawYear + 11), 33, rem) != 8;
 //        isLeap = isLeap && rem[0] % 4 == 0;
@@ -1219,53 +1541,104 @@ public final class JalaliCalendar extends Calendar {
             year = 1 - year;
         }
 
-        internalSet(ERA, era);
-        internalSet(YEAR, year);
+        fields[ERA] = era;
+        fields[YEAR] = year;
         //noinspection PointlessArithmeticExpression
-        internalSet(MONTH, month + FARVARDIN); // 0-based
-        internalSet(DATE, date);
-        internalSet(DAY_OF_WEEK, dayOfWeek);
-        internalSet(DAY_OF_YEAR, ++dayOfYear); // Convert from 0-based to 1-based
+        fields[MONTH] = month + FARVARDIN; // 0-based
+        fields[DATE] = date;
+        fields[DAY_OF_WEEK] = dayOfWeek;
+        fields[DAY_OF_YEAR] = ++dayOfYear; // Convert from 0-based to 1-based
         if (quick) {
             return;
         }
 
+        computeWeekFields(rawYear, dayOfYear, dayOfWeek, date, firstDayOfWeek, minimalDaysInFirstWeek, fields);
+    }
+
+    /**
+     * Computes the WEEK_OF_YEAR, WEEK_OF_MONTH and DAY_OF_WEEK_IN_MONTH
+     * fields of a day.
+     *
+     * @param rawYear   the year, with 0 indicating the year 1 BH.
+     * @param dayOfYear the one-based day of the year.
+     * @param dayOfWeek the day of the week.
+     * @param date      the day of the month.
+     * @param fields    the fields to set.
+     */
+    private static void computeWeekFields(int rawYear, int dayOfYear, int dayOfWeek, int date,
+                                          int firstDayOfWeek, int minimalDaysInFirstWeek, int[] fields) {
         // WEEK_OF_YEAR start
         // Compute the week of the year.  Valid week numbers run from 1 to 52
         // or 53, depending on the year, the first day of the week, and the
         // minimal days in the first week.  Days at the start of the year may
         // fall into the last week of the previous year; days at the end of
         // the year may fall into the first week of the next year.
-        int relDow = (dayOfWeek + 7 - getFirstDayOfWeek()) % 7; // 0..6
-        int relDowFar1 = (dayOfWeek - dayOfYear + 701 - getFirstDayOfWeek()) % 7; // 0..6
-        int woy = (dayOfYear - 1 + relDowFar1) / 7; // 0..53
-        if ((7 - relDowFar1) >= getMinimalDaysInFirstWeek()) {
-            ++woy;
-        }
-
-        if (dayOfYear > 359) { // Fast check which eliminates most cases
-            // Check to see if we are in the last week; if so, we need
-            // to handle the case in which we are the first week of the
-            // next year.
-            int lastDoy = yearLength();
-            int lastRelDow = (relDow + lastDoy - dayOfYear) % 7;
-            if (lastRelDow < 0) {
-                lastRelDow += 7;
-            }
-            if (((6 - lastRelDow) >= getMinimalDaysInFirstWeek()) &&
-                    ((dayOfYear + 7 - relDow) > lastDoy)) {
+        int far1Dow = addDays(dayOfWeek, 1 - dayOfYear);
+        int days = dayOfYear - 1 - weekOneStart(far1Dow, firstDayOfWeek, minimalDaysInFirstWeek);
+        int woy;
+        if (days < 0) {
+            // We are the last week of the previous year.
+            int prevLength = yearLength(rawYear - 1);
+            int prevStart = weekOneStart(addDays(far1Dow, -prevLength), firstDayOfWeek, minimalDaysInFirstWeek);
+            woy = (dayOfYear - 1 + prevLength - prevStart) / 7 + 1;
+        } else {
+            woy = days / 7 + 1;
+            // Fast check which eliminates most cases
+            if (woy > 52 && woy > weeksInYear(rawYear, far1Dow, firstDayOfWeek, minimalDaysInFirstWeek)) {
+                // We are the first week of the next year.
                 woy = 1;
             }
-        } else if (woy == 0) {
-// We are the last week of the previous year.
-            int prevDoy = dayOfYear + yearLength(rawYear - 1);
-            woy = weekNumber(prevDoy, dayOfWeek);
         }
-        internalSet(WEEK_OF_YEAR, woy);
+        fields[WEEK_OF_YEAR] = woy;
         // WEEK_OF_YEAR end
 
-        internalSet(WEEK_OF_MONTH, weekNumber(date, dayOfWeek));
-        internalSet(DAY_OF_WEEK_IN_MONTH, (date - 1) / 7 + 1);
+        fields[WEEK_OF_MONTH] = weekNumber(date, dayOfWeek, firstDayOfWeek, minimalDaysInFirstWeek);
+        fields[DAY_OF_WEEK_IN_MONTH] = (date - 1) / 7 + 1;
+    }
+
+    /**
+     * Puts the date fields of the local day in <code>fields</code> from
+     * those of the previous computation, if that was the same local day or
+     * the day before in the same year.
+     *
+     * @return false if the fields must be computed.
+     */
+    private boolean reuseDayFields(long localDay) {
+        if (dayFields == null) return false;
+        if (localDay == dayFieldsDay) {
+            System.arraycopy(dayFields, 0, fields, 0, DAY_FIELD_COUNT);
+            return true;
+        }
+        if (localDay != dayFieldsDay + 1) return false;
+
+        int rawYear = dayFields[ERA] == AH ? dayFields[YEAR] : 1 - dayFields[YEAR];
+        int month = dayFields[MONTH];
+        int date = dayFields[DATE] + 1;
+        if (date > monthLength(month, rawYear)) {
+            // Farvardin 1 is left to timeToFields
+            if (month == ESFAND) return false;
+            ++month;
+            date = 1;
+        }
+        int dayOfYear = dayFields[DAY_OF_YEAR] + 1;
+        int dayOfWeek = dayFields[DAY_OF_WEEK] == SATURDAY ? SUNDAY : dayFields[DAY_OF_WEEK] + 1;
+
+        internalSet(ERA, dayFields[ERA]);
+        internalSet(YEAR, dayFields[YEAR]);
+        internalSet(MONTH, month);
+        internalSet(DATE, date);
+        internalSet(DAY_OF_WEEK, dayOfWeek);
+        internalSet(DAY_OF_YEAR, dayOfYear);
+        computeWeekFields(rawYear, dayOfYear, dayOfWeek, date,
+                getFirstDayOfWeek(), getMinimalDaysInFirstWeek(), fields);
+        saveDayFields(localDay);
+        return true;
+    }
+
+    private void saveDayFields(long localDay) {
+        if (dayFields == null) dayFields = new int[DAY_FIELD_COUNT];
+        System.arraycopy(fields, 0, dayFields, 0, DAY_FIELD_COUNT);
+        dayFieldsDay = localDay;
     }
 
 /////////////////////////////
@@ -1350,70 +1723,25 @@ public final class JalaliCalendar extends Calendar {
         //    can be in standard or DST.  Both are valid representations (the rep
         //    jumps from 1:59:59 DST to 1:00:00 Std).
         //    Again, we assume standard time.
+        // GregorianCalendar resolves wall times the same way.
         // We use the TimeZone object, unless the user has explicitly set the ZONE_OFFSET
         // or DST_OFFSET fields; then we use those fields.
-        TimeZone zone = getTimeZone();
-        int zoneOffset = (getStamp(ZONE_OFFSET) >= MINIMUM_USER_STAMP)
-                /*isSet(ZONE_OFFSET) && userSetZoneOffset*/ ?
-                internalGet(ZONE_OFFSET) : zone.getRawOffset();
 
         // Now add date and millisInDay together, to make millis contain local wall
         // millis, with no zone or DST adjustments
         millis += millisInDay;
 
+        int zoneOffset;
         int dstOffset;
-        if (getStamp(ZONE_OFFSET) >= MINIMUM_USER_STAMP
-            /*isSet(DST_OFFSET) && userSetDSTOffset*/)
+        boolean userSetZoneOffset = getStamp(ZONE_OFFSET) >= MINIMUM_USER_STAMP;
+        boolean userSetDSTOffset = getStamp(DST_OFFSET) >= MINIMUM_USER_STAMP;
+        if (userSetZoneOffset && userSetDSTOffset) {
+            zoneOffset = internalGet(ZONE_OFFSET);
             dstOffset = internalGet(DST_OFFSET);
-        else {
-            /* Normalize the millisInDay to 0..ONE_DAY-1.  If the millis is out
-             * of range, then we must call timeToFields() to recompute our
-             * fields. */
-            int[] normalizedMillisInDay = new int[1];
-            floorDivide(millis, (int) ONE_DAY, normalizedMillisInDay);
-
-            // We need to have the month, the day, and the day of the week.
-            // Calling timeToFields will compute the MONTH and DATE fields.
-            // If we're lenient then we need to call timeToFields() to
-            // normalize the year, month, and date numbers.
-
-            // commented by Amir Pashazadeh
-//            int dow;
-
-            if (isLenient() || getStamp(MONTH) == UNSET || getStamp(DATE) == UNSET
-                    || millisInDay != normalizedMillisInDay[0]) {
-                timeToFields(millis, true); // Use wall time; true == do quick computation
-
-                // commented by Amir Pashazadeh
-//                dow = internalGet(DAY_OF_WEEK); // DOW is computed by timeToFields
-            } else {
-                // It's tempting to try to use DAY_OF_WEEK here, if it
-                // is set, but we CAN'T.  Even if it's set, it might have
-                // been set wrong by the user.  We should rely only on
-                // the Jalali day number, which has been computed correctly
-                // using the disambiguation algorithm above. [LIU]
-
-                // commented by Amir Pashazadeh
-//                dow = jalaliDayToDayOfWeek(jalaliDay);
-            }
-
-            // It's tempting to try to use DAY_OF_WEEK here, if it
-            // is set, but we CAN'T.  Even if it's set, it might have
-            // been set wrong by the user.  We should rely only on
-            // the Jalali day number, which has been computed correctly
-            // using the disambiguation algorithm above. [LIU]
-            // TBD: getOffset assumes a GregorianCalendar
-            dstOffset = 0/*zone.getOffset(era,
-                                       internalGet(YEAR),
-                                       internalGet(MONTH),
-                                       internalGet(DATE),
-                                       dow,
-                                       normalizedMillisInDay[0]) -
-                zoneOffset*/;
-            // Note: Because we pass in wall millisInDay, rather than
-            // standard millisInDay, we interpret "1:00 am" on the day
-            // of cessation of DST as "1:00 am Std" (assuming the time
-            // of cessation is 2:00 am).
+        } else {
+            long offsets = zoneOffsets().atWall(millis);
+            zoneOffset = userSetZoneOffset ? internalGet(ZONE_OFFSET) : ZoneOffsetTable.rawOffset(offsets);
+            dstOffset = userSetDSTOffset ? internalGet(DST_OFFSET) : ZoneOffsetTable.dstOffset(offsets);
         }
 
         // Store our final computed GMT time, with timezone adjustments.
@@ -1431,7 +1759,7 @@ public final class JalaliCalendar extends Calendar {
      * @return the Jalali day number
      */
     private long computeJalaliDay(int year) {
-        int month = 0, date, y;
+        int month = 0, date;
 
         // commented by Amir Pashazadeh
 //        long millis = 0;
@@ -1494,18 +1822,13 @@ public final class JalaliCalendar extends Calendar {
 
             // If the month is out of range, adjust it into range
             if (month < 0 || month > 11) {
-                int[] rem = new int[1];
-                year += floorDivide(month, 12, rem);
-                month = rem[0];
+                int years = floorDivide(month, 12);
+                year += years;
+                month -= years * 12;
             }
         }
 
-        y = year - BASE_YEAR - 1;
-        int[] rem = new int[1];
-        long jalaliDay = FAR_1_1376_JALALI_DAY + 365L * y - 1 /* Constant */;
-        jalaliDay += floorDivide(y, 33, rem) * 8;
-        jalaliDay += floorDivide(rem[0], 4);
-        jalaliDay -= floorDivide(rem[0], 32);
+        long jalaliDay = jalaliYearStart(year) - 1;
         // At this point jalaliDay is the 0-based day BEFORE the first day of
         // Farvardin 1, 1376.
 
@@ -1532,8 +1855,7 @@ public final class JalaliCalendar extends Calendar {
                 // 1..-6.  It represents the locale-specific first day of the
                 // week of the first day of the month, ignoring minimal days in
                 // first week.
-                date = 1 - fdm + (dowStamp != UNSET ?
-                        (internalGet(DAY_OF_WEEK) - getFirstDayOfWeek()) : 0);
+                date = 1 - fdm + relativeDayOfWeek(dowStamp);
 
                 if (bestStamp == womStamp) {
                     // Adjust for minimal days in first week.
@@ -1575,26 +1897,11 @@ public final class JalaliCalendar extends Calendar {
             if (bestStamp == doyStamp) {
                 jalaliDay += internalGet(DAY_OF_YEAR);
             } else { // assert(bestStamp == woyStamp)
-                // Compute from day of week plus week of year
-
-                // Find the day of the week for the first of this year.  This
-                // is zero-based, with 0 being the locale-specific first day of
-                // the week.  Add 1 to get the 1st day of month.  Subtract
-                // getFirstDayOfWeek() to make 0-based.
-                int fdy = jalaliDayToDayOfWeek(jalaliDay + 1) - getFirstDayOfWeek();
-                if (fdy < 0) fdy += 7;
-
-                // Find the start of the first week.  This may be a valid date
-                // from 1..7, or a date before the first, from 0..-6.  It
-                // represents the locale-specific first day of the week
-                // of the first day of the year.
-
-                // First ignore the minimal days in first week.
-                date = 1 - fdy + (dowStamp != UNSET ?
-                        (internalGet(DAY_OF_WEEK) - getFirstDayOfWeek()) : 0);
-
-                // Adjust for minimal days in first week.
-                if ((7 - fdy) < getMinimalDaysInFirstWeek()) date += 7;
+                // Compute from day of week plus week of year.  Start from the
+                // first day of week 1, a date from -5..7, which is on the
+                // locale-specific first day of the week.
+                date = 1 + weekOneStart(jalaliDayToDayOfWeek(jalaliDay + 1),
+                        getFirstDayOfWeek(), getMinimalDaysInFirstWeek()) + relativeDayOfWeek(dowStamp);
 
                 // Now adjust for the week number.
                 date += 7 * (internalGet(WEEK_OF_YEAR) - 1);
@@ -1606,6 +1913,17 @@ public final class JalaliCalendar extends Calendar {
         return jalaliDay;
     }
 
+    /**
+     * Returns the DAY_OF_WEEK field as days after the locale-specific first
+     * day of the week, 0..6 for the days of one week, or 0 if it is unset.
+     */
+    private int relativeDayOfWeek(int dowStamp) {
+        if (dowStamp == UNSET) return 0;
+        int relDow = internalGet(DAY_OF_WEEK) - getFirstDayOfWeek();
+        if (relDow < 0) relDow += 7;
+        return relDow;
+    }
+
 /////////////////
 // Implementation
 /////////////////
@@ -1630,10 +1948,125 @@ public final class JalaliCalendar extends Calendar {
         return (jalali - EPOCH_JALALI_DAY) * ONE_DAY;
     }
 
+    /**
+     * Splits an epoch day (days since January 1, 1970) into its Jalali year
+     * and zero-based day of year.
+     *
+     * @param epochDay the given epoch day.
+     * @return the year (0 indicating 1 BH, -1 indicating 2 BH, etc.)
+     *         shifted left by 16 bits, or'ed with the zero-based day of year.
+     */
+    static long yearAndDayOfYear(long epochDay) {
+        int rawYear, dayOfYear;
+        if (YEAR_STARTS.containsDay(epochDay)) {
+            // Inside the year table window the year is a lookup
+            rawYear = YEAR_STARTS.yearOf(epochDay);
+            dayOfYear = (int) (epochDay - YEAR_STARTS.yearStart(rawYear));
+        } else {
+            long jalaliEpochDay = epochDay + EPOCH_JALALI_DAY - FAR_1_1376_JALALI_DAY;
+            // Here we convert from the day number to the multiple radix
+            // representation.  We use 33-year and 4-year cycles.
+            // For example, the 4-year cycle has 4 years + 1 leap day; giving
+            // 1461 == 365*4 + 1 days, and the 33-year cycle has 33 years + 8
+            // leap day; giving 12053 == 365*33 + 8 days.
+            // Only the first division can have a negative numerator, the
+            // remainders after it are plain divisions.
+            int n33 = (int) floorDivide(jalaliEpochDay, 12053); // 33-year cycle length
+            int rem = (int) (jalaliEpochDay - n33 * 12053L);
+            int n4 = rem / 1461; // 4-year cycle length
+            rem -= n4 * 1461;
+            int n1 = rem / 365;
+            rawYear = BASE_YEAR + 33 * n33 + 4 * n4 + n1;
+            dayOfYear = rem - n1 * 365;
+            if (n4 != 7 && n1 == 4) {
+                dayOfYear = 365; // Esf 30 at end of 4-year cycle
+            } else {
+                ++rawYear;
+                if (n4 == 8) {
+                    dayOfYear++; // last year of last 4-year cycle is not Leap
+                    // add the extra day to next year
+                } else if (n4 == 7 && n1 == 4) {
+                    dayOfYear = 0;  // 1 Farv of the last year of 33-year cycle
+                }
+            }
+        }
+        return ((long) rawYear << 16) | dayOfYear;
+    }
+
+    /**
+     * Returns the zero-based month a zero-based day of year falls in.
+     */
+    static int monthOfDayOfYear(int dayOfYear) {
+        return (dayOfYear < NUM_DAYS[6]) ? dayOfYear / 31 : (dayOfYear - 6) / 30;
+    }
+
+    /**
+     * Returns the number of days of the year before the first day of the
+     * given zero-based month.
+     */
+    static int daysBeforeMonth(int month) {
+        return NUM_DAYS[month];
+    }
+
+    /**
+     * Converts a Jalali date to its epoch day (days since January 1, 1970).
+     *
+     * @param year  the adjusted year number, with 0 indicating the
+     *              year 1 BH, -1 indicating 2 BH, etc.
+     * @param month the zero-based month, 0 to 11.
+     * @param day   the one-based day of month.
+     * @return the epoch day.
+     */
+    static long jalaliToEpochDay(int year, int month, int day) {
+        return jalaliYearStart(year) - EPOCH_JALALI_DAY + NUM_DAYS[month] + day - 1;
+    }
+
+    /**
+     * Returns the Jalali day number of Farvardin 1 of the given year, a
+     * lookup in the year table when the year is inside its window.
+     *
+     * @param year the adjusted year number, with 0 indicating the
+     *             year 1 BH, -1 indicating 2 BH, etc.
+     * @return the Jalali day number of Farvardin 1.
+     */
+    private static long jalaliYearStart(int year) {
+        if (YEAR_STARTS.containsYear(year)) {
+            return EPOCH_JALALI_DAY + YEAR_STARTS.yearStart(year);
+        }
+        return cycleYearStart(year);
+    }
+
+    /**
+     * Computes the Jalali day number of Farvardin 1 of the given year from
+     * the 33-year and 4-year cycles.
+     */
+    private static long cycleYearStart(int year) {
+        int y = year - BASE_YEAR - 1;
+        int n33 = floorDivide(y, 33);
+        int rem = y - n33 * 33;
+        long jalaliDay = FAR_1_1376_JALALI_DAY + 365L * y;
+        jalaliDay += n33 * 8;
+        jalaliDay += rem / 4;
+        jalaliDay -= rem / 32;
+        return jalaliDay;
+    }
+
+    /**
+     * Builds the year table for the 33-year cycle rule of this class.
+     */
+    private static JalaliYearTable createYearTable() {
+        int[] starts = new int[Math.max(0, JalaliYearTable.LAST_YEAR - JalaliYearTable.FIRST_YEAR + 1) + 1];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = (int) (cycleYearStart(JalaliYearTable.FIRST_YEAR + i) - EPOCH_JALALI_DAY);
+        }
+        return new JalaliYearTable(JalaliYearTable.FIRST_YEAR, starts);
+    }
+
     private static int jalaliDayToDayOfWeek(long jalali) {
         // If jalali is negative, then jalali%7 will be negative, so we adjust
-        // accordingly.  We add 5 because Jalali day 0 is Friday.
-        int dayOfWeek = (int) ((jalali + FRIDAY - SUNDAY) % 7);
+        // accordingly.  We add 1 because Jalali day numbers are Julian day
+        // numbers and day 0 is a Monday.
+        int dayOfWeek = (int) ((jalali + MONDAY - SUNDAY) % 7);
         return dayOfWeek + ((dayOfWeek < 0) ? (7 + SUNDAY) : SUNDAY);
     }
 
@@ -1675,56 +2108,6 @@ public final class JalaliCalendar extends Calendar {
                 ((numerator + 1) / denominator) - 1;
     }
 
-    /**
-     * Divide two integers, returning the floor of the quotient, and
-     * the modulus remainder.
-     * <p/>
-     * Unlike the built-in division, this is mathematically well-behaved.
-     * E.g., <code>-1/4</code> => 0 and <code>-1%4</code> => -1,
-     * but <code>floorDivide(-1,4)</code> => -1 with <code>remainder[0]</code> => 3.
-     *
-     * @param numerator   the numerator
-     * @param denominator a divisor which must be > 0
-     * @param remainder   an array of at least one element in which the value
-     *                    <code>numerator mod denominator</code> is returned. Unlike <code>numerator
-     *                    % denominator</code>, this will always be non-negative.
-     * @return the floor of the quotient.
-     */
-    private static int floorDivide(int numerator, int denominator, int[] remainder) {
-        if (numerator >= 0) {
-            remainder[0] = numerator % denominator;
-            return numerator / denominator;
-        }
-        int quotient = ((numerator + 1) / denominator) - 1;
-        remainder[0] = numerator - (quotient * denominator);
-        return quotient;
-    }
-
-    /**
-     * Divide two integers, returning the floor of the quotient, and
-     * the modulus remainder.
-     * <p/>
-     * Unlike the built-in division, this is mathematically well-behaved.
-     * E.g., <code>-1/4</code> => 0 and <code>-1%4</code> => -1,
-     * but <code>floorDivide(-1,4)</code> => -1 with <code>remainder[0]</code> => 3.
-     *
-     * @param numerator   the numerator
-     * @param denominator a divisor which must be > 0
-     * @param remainder   an array of at least one element in which the value
-     *                    <code>numerator mod denominator</code> is returned. Unlike <code>numerator
-     *                    % denominator</code>, this will always be non-negative.
-     * @return the floor of the quotient.
-     */
-    private static int floorDivide(long numerator, int denominator, int[] remainder) {
-        if (numerator >= 0) {
-            remainder[0] = (int) (numerator % denominator);
-            return (int) (numerator / denominator);
-        }
-        int quotient = (int) (((numerator + 1) / denominator) - 1);
-        remainder[0] = (int) (numerator - (quotient * denominator));
-        return quotient;
-    }
-
     /**
      * Return the pseudo-time-stamp for two fields, given their
      * individual pseudo-time-stamps.  If either of the fields
@@ -1751,10 +2134,15 @@ public final class JalaliCalendar extends Calendar {
      *         week because the minimum days in the first week is more than one.
      */
     private int weekNumber(int dayOfPeriod, int dayOfWeek) {
+        return weekNumber(dayOfPeriod, dayOfWeek, getFirstDayOfWeek(), getMinimalDaysInFirstWeek());
+    }
+
+    private static int weekNumber(int dayOfPeriod, int dayOfWeek, int firstDayOfWeek,
+                                  int minimalDaysInFirstWeek) {
         // Determine the day of the week of the first day of the period
         // in question (either a year or a month).  Zero represents the
         // first day of the week on this jalalicalendar.
-        int periodStartDayOfWeek = (dayOfWeek - getFirstDayOfWeek() - dayOfPeriod + 1) % 7;
+        int periodStartDayOfWeek = (dayOfWeek - firstDayOfWeek - dayOfPeriod + 1) % 7;
         if (periodStartDayOfWeek < 0) periodStartDayOfWeek += 7;
 
         // Compute the week number.  Initially, ignore the first week, which
@@ -1765,12 +2153,39 @@ public final class JalaliCalendar extends Calendar {
         // If the first week is long enough, then count it.  If
         // the minimal days in the first week is one, or if the period start
         // is zero, we always increment weekNo.
-        if ((7 - periodStartDayOfWeek) >= getMinimalDaysInFirstWeek()) ++weekNo;
+        if ((7 - periodStartDayOfWeek) >= minimalDaysInFirstWeek) ++weekNo;
 
         return weekNo;
     }
 
-    private int monthLength(int month, int year) {
+    /**
+     * Returns the zero-based day of the year of the first day of week 1, a
+     * day from -6..6, negative if week 1 starts in the previous year.
+     *
+     * @param far1Dow the day of the week of Farvardin 1 of the year.
+     */
+    private static int weekOneStart(int far1Dow, int firstDayOfWeek, int minimalDaysInFirstWeek) {
+        // Farvardin 1 as days after the locale-specific first day of its week
+        int relDow = far1Dow - firstDayOfWeek;
+        if (relDow < 0) relDow += 7;
+        // Week 1 is the week of Farvardin 1 if it has enough days of the year
+        return (7 - relDow) >= minimalDaysInFirstWeek ? -relDow : 7 - relDow;
+    }
+
+    /**
+     * Returns the number of weeks of a year, 52 or 53: the days from week 1
+     * up to week 1 of the next year, divided by 7.
+     *
+     * @param year    the year, with 0 indicating the year 1 BH.
+     * @param far1Dow the day of the week of Farvardin 1 of the year.
+     */
+    private static int weeksInYear(int year, int far1Dow, int firstDayOfWeek, int minimalDaysInFirstWeek) {
+        int length = yearLength(year);
+        int nextStart = weekOneStart(addDays(far1Dow, length), firstDayOfWeek, minimalDaysInFirstWeek);
+        return (length + nextStart - weekOneStart(far1Dow, firstDayOfWeek, minimalDaysInFirstWeek)) / 7;
+    }
+
+    static int monthLength(int month, int year) {
         return isLeapYear(year) ? LEAP_MONTH_LENGTH[month] : MONTH_LENGTH[month];
     }
 
@@ -1793,7 +2208,7 @@ public final class JalaliCalendar extends Calendar {
 //        return (month > 1) ? monthLength(month - 1) : 29;
 //    }
 
-    private int yearLength(int year) {
+    private static int yearLength(int year) {
         return isLeapYear(year) ? 366 : 365;
     }
 
@@ -1868,31 +2283,72 @@ public final class JalaliCalendar extends Calendar {
     }
 
     private int getStamp(int index) {
-        return getStamps()[index];
+        return isSet[index] ? stamps[index] : UNSET;
     }
 
-    private void setStamp(int index, int value) {
-        getStamps()[index] = value;
+    /**
+     * Renumbers the user stamps from MINIMUM_USER_STAMP, keeping their order,
+     * before nextStamp overflows.
+     */
+    private void adjustStamps() {
+        int max = MINIMUM_USER_STAMP;
+        int newStamp = MINIMUM_USER_STAMP;
+        for (; ; ) {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                int v = getStamp(i);
+                if (v >= newStamp && min > v) min = v;
+                if (max < v) max = v;
+            }
+            if (max != min && min == Integer.MAX_VALUE) break;
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                if (getStamp(i) == min) stamps[i] = newStamp;
+            }
+            newStamp++;
+            if (min == max) break;
+        }
+        nextStamp = newStamp;
     }
 
-    private int[] getStamps() {
-        try {
-            Field field = Calendar.class.getDeclaredField("stamp");
-            field.setAccessible(true);
-            return (int[]) field.get(this);
-        } catch (Exception e) {
-            if (e instanceof RuntimeException) {
-                throw (RuntimeException) e;
-            } else {
-                throw new RuntimeException(e);
-            }
+    private ZoneOffsetTable zoneOffsets() {
+        ZoneOffsetTable offsets = zoneOffsets;
+        if (offsets == null) {
+            zoneOffsets = offsets = ZoneOffsetTable.of(getTimeZone());
         }
+        return offsets;
     }
 
     private void internalSet(int field, int value) {
         fields[field] = value;
     }
 
+    /**
+     * Writes this calendar as a {@link JalaliCalendarProxy}, or in the
+     * default Calendar form if its fields do not resolve to a time.
+     */
+    private Object writeReplace() {
+        try {
+            getTimeInMillis();
+        } catch (IllegalArgumentException e) {
+            return this;
+        }
+        return new JalaliCalendarProxy(this);
+    }
+
+    /**
+     * Reads the default Calendar form, that of calendars written before
+     * {@link JalaliCalendarProxy} and of those whose fields did not resolve.
+     */
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        // Calendar only streams isSet[], so all the set fields count as computed
+        stamps = new int[FIELD_COUNT];
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            stamps[i] = isSet[i] ? COMPUTED : UNSET;
+        }
+        nextStamp = MINIMUM_USER_STAMP;
+    }
+
 
 
 }
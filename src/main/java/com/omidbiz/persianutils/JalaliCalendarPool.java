@@ -0,0 +1,167 @@
+package com.omidbiz.persianutils;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Thread confined {@link JalaliCalendar}s to reuse instead of
+ *         constructing one per use, which looks up the week data of the
+ *         locale and computes the fields of the current time. Each thread
+ *         keeps one calendar: {@link #acquire(TimeZone)} hands it out reset
+ *         and {@link #release(JalaliCalendar)} gives it back.
+ *         </p>
+ *         <p>
+ *         A calendar is reset to the state of a new one in the given zone
+ *         and the locale of the pool, cleared as by {@link JalaliCalendar#clear()}:
+ *         lenient, the week settings of the locale, the same day fast path
+ *         off and no fields or time set. A calendar acquired while the one of
+ *         the thread is still out, as in nested use, is a new calendar that
+ *         release drops. A calendar must not be used after it is released,
+ *         nor passed to another thread; releasing it from another thread
+ *         does nothing.
+ *         </p>
+ */
+public final class JalaliCalendarPool
+{
+
+    private static final JalaliCalendarPool INSTANCE = new JalaliCalendarPool(Locale.getDefault());
+
+    private static final class Holder
+    {
+
+        JalaliCalendar calendar;
+
+        boolean inUse;
+
+    }
+
+    private final Locale locale;
+
+    private final int firstDayOfWeek;
+
+    private final int minimalDaysInFirstWeek;
+
+    private final ThreadLocal<Holder> holders = new ThreadLocal<Holder>()
+    {
+        @Override
+        protected Holder initialValue()
+        {
+            return new Holder();
+        }
+    };
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param locale
+     *            the locale of the week settings of the calendars
+     */
+    public JalaliCalendarPool(Locale locale)
+    {
+        JalaliCalendar calendar = new JalaliCalendar(TimeZone.getTimeZone("UTC"), locale);
+        this.locale = locale;
+        this.firstDayOfWeek = calendar.getFirstDayOfWeek();
+        this.minimalDaysInFirstWeek = calendar.getMinimalDaysInFirstWeek();
+    }
+
+    /**
+     * @return the pool of the default locale at class initialization
+     */
+    public static JalaliCalendarPool getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * @param zone
+     *            the time zone of the calendar
+     * @return a cleared calendar in the given zone, for the current thread
+     *         only
+     */
+    public JalaliCalendar acquire(TimeZone zone)
+    {
+        Holder holder = holders.get();
+        JalaliCalendar calendar = holder.calendar;
+        if (calendar == null || holder.inUse)
+        {
+            misses.increment();
+            calendar = new JalaliCalendar(zone, locale);
+            if (holder.calendar == null)
+            {
+                holder.calendar = calendar;
+                holder.inUse = true;
+            }
+        }
+        else
+        {
+            hits.increment();
+            holder.inUse = true;
+            if (calendar.getTimeZone() != zone)
+                calendar.setTimeZone(zone);
+        }
+        reset(calendar);
+        return calendar;
+    }
+
+    /**
+     * @param zone
+     *            the time zone of the calendar
+     * @param millis
+     *            the time to set
+     * @return a calendar in the given zone set to the given time, for the
+     *         current thread only
+     */
+    public JalaliCalendar acquire(TimeZone zone, long millis)
+    {
+        JalaliCalendar calendar = acquire(zone);
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    /**
+     * Gives back a calendar of {@link #acquire(TimeZone)} for the next
+     * acquire of the current thread.
+     *
+     * @param calendar
+     *            the calendar, which must not be used after
+     */
+    public void release(JalaliCalendar calendar)
+    {
+        Holder holder = holders.get();
+        if (holder.calendar == calendar)
+            holder.inUse = false;
+    }
+
+    /**
+     * @return the number of acquires that reused the calendar of the thread
+     */
+    public long hits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of acquires that constructed a calendar
+     */
+    public long misses()
+    {
+        return misses.sum();
+    }
+
+    private void reset(JalaliCalendar calendar)
+    {
+        calendar.setLenient(true);
+        if (calendar.getFirstDayOfWeek() != firstDayOfWeek)
+            calendar.setFirstDayOfWeek(firstDayOfWeek);
+        if (calendar.getMinimalDaysInFirstWeek() != minimalDaysInFirstWeek)
+            calendar.setMinimalDaysInFirstWeek(minimalDaysInFirstWeek);
+        calendar.setSameDayFastPath(false);
+        calendar.clear();
+    }
+
+}
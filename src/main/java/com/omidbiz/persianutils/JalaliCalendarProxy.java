@@ -0,0 +1,98 @@
+package com.omidbiz.persianutils;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Serialized form of {@link JalaliCalendar}: a version byte, the time,
+ *         the lenient flag, the week settings and the time zone ID, instead of
+ *         the fields, their flags and the whole TimeZone object of the default
+ *         Calendar form.
+ *         </p>
+ *         <p>
+ *         A zone that its ID does not bring back, such as a SimpleTimeZone
+ *         with rules of its own, is written as the TimeZone object. Fields set
+ *         since the time was last computed are resolved into the time before
+ *         writing, as Calendar does; calendars whose fields do not resolve are
+ *         written in the default form. Calendars of the default form,
+ *         including those written before this one, are still read by
+ *         JalaliCalendar itself.
+ *         </p>
+ */
+final class JalaliCalendarProxy implements Externalizable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int VERSION = 1;
+
+    private static final int LENIENT = 1;
+
+    private static final int ZONE_OBJECT = 2;
+
+    private JalaliCalendar calendar;
+
+    /**
+     * for deserialization only
+     */
+    public JalaliCalendarProxy()
+    {
+    }
+
+    /**
+     * @param calendar
+     *            a calendar whose time is set
+     */
+    JalaliCalendarProxy(JalaliCalendar calendar)
+    {
+        this.calendar = calendar;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        TimeZone zone = calendar.getTimeZone();
+        String id = zone.getID();
+        TimeZone byId = TimeZone.getTimeZone(id);
+        boolean zoneObject = !byId.getID().equals(id) || !byId.hasSameRules(zone);
+        out.writeByte(VERSION);
+        out.writeLong(calendar.getTimeInMillis());
+        out.writeByte((calendar.isLenient() ? LENIENT : 0) | (zoneObject ? ZONE_OBJECT : 0));
+        out.writeByte(calendar.getFirstDayOfWeek());
+        out.writeByte(calendar.getMinimalDaysInFirstWeek());
+        if (zoneObject)
+            out.writeObject(zone);
+        else
+            out.writeUTF(id);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        int version = in.readByte();
+        if (version != VERSION)
+            throw new InvalidObjectException("unknown JalaliCalendar form " + version);
+        long time = in.readLong();
+        int flags = in.readByte();
+        int firstDayOfWeek = in.readByte();
+        int minimalDaysInFirstWeek = in.readByte();
+        if (firstDayOfWeek < Calendar.SUNDAY || firstDayOfWeek > Calendar.SATURDAY || minimalDaysInFirstWeek < 1
+                || minimalDaysInFirstWeek > 7)
+            throw new InvalidObjectException("invalid week settings " + firstDayOfWeek + ", " + minimalDaysInFirstWeek);
+        TimeZone zone = (flags & ZONE_OBJECT) != 0 ? (TimeZone) in.readObject() : TimeZone.getTimeZone(in.readUTF());
+        calendar = new JalaliCalendar(zone, time, (flags & LENIENT) != 0, firstDayOfWeek, minimalDaysInFirstWeek);
+    }
+
+    private Object readResolve()
+    {
+        return calendar;
+    }
+
+}
@@ -0,0 +1,457 @@
+package com.omidbiz.persianutils;
+
+import java.io.Serializable;
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.time.chrono.ChronoLocalDate;
+import java.time.chrono.ChronoLocalDateTime;
+import java.time.chrono.ChronoPeriod;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.Temporal;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalAdjuster;
+import java.time.temporal.TemporalAmount;
+import java.time.temporal.TemporalField;
+import java.time.temporal.TemporalUnit;
+import java.time.temporal.UnsupportedTemporalTypeException;
+import java.time.temporal.ValueRange;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Date of the {@link JalaliChronology}, held as int year, month and
+ *         day like {@link JalaliDate}, with every field and unit of
+ *         <code>ChronoLocalDate</code> worked out from the epoch-day
+ *         arithmetic of {@link JalaliCalendar}.
+ *         </p>
+ *         <p>
+ *         Months are one-based, 1 for Farvardin to 12 for Esfand. Years are
+ *         proleptic, 0 is 1 BH.
+ *         </p>
+ */
+public final class JalaliChronoLocalDate implements ChronoLocalDate, Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private final int year;
+
+    private final int month;
+
+    private final int day;
+
+    private JalaliChronoLocalDate(int year, int month, int day)
+    {
+        this.year = year;
+        this.month = month;
+        this.day = day;
+    }
+
+    /**
+     * @param month
+     *            one-based month, 1 for Farvardin
+     * @throws DateTimeException
+     *             if a field is out of range or the day is past the end of
+     *             the month
+     */
+    public static JalaliChronoLocalDate of(int prolepticYear, int month, int dayOfMonth)
+    {
+        JalaliChronology.INSTANCE.range(ChronoField.YEAR).checkValidValue(prolepticYear, ChronoField.YEAR);
+        ChronoField.MONTH_OF_YEAR.checkValidValue(month);
+        ChronoField.DAY_OF_MONTH.checkValidValue(dayOfMonth);
+        if (dayOfMonth > JalaliCalendar.monthLength(month - 1, prolepticYear))
+            throw new DateTimeException("Invalid date: " + prolepticYear + "/" + month + "/" + dayOfMonth);
+        return new JalaliChronoLocalDate(prolepticYear, month, dayOfMonth);
+    }
+
+    /**
+     * @param dayOfYear
+     *            one-based day of year
+     * @throws DateTimeException
+     *             if a field is out of range
+     */
+    public static JalaliChronoLocalDate ofYearDay(int prolepticYear, int dayOfYear)
+    {
+        JalaliChronology.INSTANCE.range(ChronoField.YEAR).checkValidValue(prolepticYear, ChronoField.YEAR);
+        ChronoField.DAY_OF_YEAR.checkValidValue(dayOfYear);
+        if (dayOfYear == 366 && !JalaliCalendar.isLeapYear(prolepticYear))
+            throw new DateTimeException("Invalid date: day 366 of " + prolepticYear + " which is not a leap year");
+        int month = JalaliCalendar.monthOfDayOfYear(dayOfYear - 1);
+        return new JalaliChronoLocalDate(prolepticYear, month + 1, dayOfYear - JalaliCalendar.daysBeforeMonth(month));
+    }
+
+    /**
+     * @param epochDay
+     *            days since 1970/01/01
+     * @throws DateTimeException
+     *             if the date is outside the years of the chronology
+     */
+    public static JalaliChronoLocalDate ofEpochDay(long epochDay)
+    {
+        ChronoField.EPOCH_DAY.checkValidValue(epochDay);
+        long yearAndDay = JalaliCalendar.yearAndDayOfYear(epochDay);
+        long year = yearAndDay >> 16;
+        int dayOfYear = (int) (yearAndDay & 0xFFFF);
+        JalaliChronology.INSTANCE.range(ChronoField.YEAR).checkValidValue(year, ChronoField.YEAR);
+        int month = JalaliCalendar.monthOfDayOfYear(dayOfYear);
+        return new JalaliChronoLocalDate((int) year, month + 1, dayOfYear - JalaliCalendar.daysBeforeMonth(month) + 1);
+    }
+
+    /**
+     * @return the Jalali date of any temporal that has an epoch day, such as
+     *         <code>LocalDate</code>
+     */
+    public static JalaliChronoLocalDate from(TemporalAccessor temporal)
+    {
+        return JalaliChronology.INSTANCE.date(temporal);
+    }
+
+    public static JalaliChronoLocalDate now()
+    {
+        return JalaliChronology.INSTANCE.dateNow();
+    }
+
+    /**
+     * @return the same date as a {@link JalaliDate}
+     */
+    public JalaliDate toJalaliDate()
+    {
+        return JalaliDate.of(year, month, day);
+    }
+
+    @Override
+    public JalaliChronology getChronology()
+    {
+        return JalaliChronology.INSTANCE;
+    }
+
+    @Override
+    public JalaliEra getEra()
+    {
+        return year >= 1 ? JalaliEra.AH : JalaliEra.BH;
+    }
+
+    @Override
+    public boolean isLeapYear()
+    {
+        return JalaliCalendar.isLeapYear(year);
+    }
+
+    @Override
+    public int lengthOfMonth()
+    {
+        return JalaliCalendar.monthLength(month - 1, year);
+    }
+
+    @Override
+    public int lengthOfYear()
+    {
+        return isLeapYear() ? 366 : 365;
+    }
+
+    @Override
+    public long toEpochDay()
+    {
+        return JalaliCalendar.jalaliToEpochDay(year, month - 1, day);
+    }
+
+    @Override
+    public ValueRange range(TemporalField field)
+    {
+        if (field instanceof ChronoField)
+        {
+            if (!isSupported(field))
+                throw new UnsupportedTemporalTypeException("Unsupported field: " + field);
+            ChronoField f = (ChronoField) field;
+            switch (f)
+            {
+            case DAY_OF_MONTH:
+                return ValueRange.of(1, lengthOfMonth());
+            case DAY_OF_YEAR:
+                return ValueRange.of(1, lengthOfYear());
+            case YEAR_OF_ERA:
+                return year >= 1 ? ValueRange.of(1, JalaliChronology.MAX_YEAR)
+                        : ValueRange.of(1, 1L - JalaliChronology.MIN_YEAR);
+            default:
+                return getChronology().range(f);
+            }
+        }
+        return field.rangeRefinedBy(this);
+    }
+
+    @Override
+    public long getLong(TemporalField field)
+    {
+        if (field instanceof ChronoField)
+        {
+            switch ((ChronoField) field)
+            {
+            case DAY_OF_WEEK:
+                return getDayOfWeek();
+            case ALIGNED_DAY_OF_WEEK_IN_MONTH:
+                return (day - 1) % 7 + 1;
+            case ALIGNED_DAY_OF_WEEK_IN_YEAR:
+                return (getDayOfYear() - 1) % 7 + 1;
+            case DAY_OF_MONTH:
+                return day;
+            case DAY_OF_YEAR:
+                return getDayOfYear();
+            case EPOCH_DAY:
+                return toEpochDay();
+            case ALIGNED_WEEK_OF_MONTH:
+                return (day - 1) / 7 + 1;
+            case ALIGNED_WEEK_OF_YEAR:
+                return (getDayOfYear() - 1) / 7 + 1;
+            case MONTH_OF_YEAR:
+                return month;
+            case PROLEPTIC_MONTH:
+                return getProlepticMonth();
+            case YEAR_OF_ERA:
+                return year >= 1 ? year : 1L - year;
+            case YEAR:
+                return year;
+            case ERA:
+                return year >= 1 ? 1 : 0;
+            default:
+                throw new UnsupportedTemporalTypeException("Unsupported field: " + field);
+            }
+        }
+        return field.getFrom(this);
+    }
+
+    @Override
+    public JalaliChronoLocalDate with(TemporalField field, long newValue)
+    {
+        if (field instanceof ChronoField)
+        {
+            ChronoField f = (ChronoField) field;
+            getChronology().range(f).checkValidValue(newValue, f);
+            int value = (int) newValue;
+            switch (f)
+            {
+            case DAY_OF_WEEK:
+                return plusDays(newValue - getDayOfWeek());
+            case ALIGNED_DAY_OF_WEEK_IN_MONTH:
+            case ALIGNED_DAY_OF_WEEK_IN_YEAR:
+                return plusDays(newValue - getLong(f));
+            case ALIGNED_WEEK_OF_MONTH:
+            case ALIGNED_WEEK_OF_YEAR:
+                return plusDays((newValue - getLong(f)) * 7);
+            case DAY_OF_MONTH:
+                return of(year, month, value);
+            case DAY_OF_YEAR:
+                return ofYearDay(year, value);
+            case EPOCH_DAY:
+                return ofEpochDay(newValue);
+            case MONTH_OF_YEAR:
+                return resolvePreviousValid(year, value, day);
+            case PROLEPTIC_MONTH:
+                return plusMonths(newValue - getProlepticMonth());
+            case YEAR_OF_ERA:
+                return resolvePreviousValid(year >= 1 ? value : 1 - value, month, day);
+            case YEAR:
+                return resolvePreviousValid(value, month, day);
+            case ERA:
+                return newValue == getLong(ChronoField.ERA) ? this : resolvePreviousValid(1 - year, month, day);
+            default:
+                throw new UnsupportedTemporalTypeException("Unsupported field: " + field);
+            }
+        }
+        return field.adjustInto(this, newValue);
+    }
+
+    @Override
+    public JalaliChronoLocalDate with(TemporalAdjuster adjuster)
+    {
+        return (JalaliChronoLocalDate) ChronoLocalDate.super.with(adjuster);
+    }
+
+    @Override
+    public JalaliChronoLocalDate plus(long amountToAdd, TemporalUnit unit)
+    {
+        if (unit instanceof ChronoUnit)
+        {
+            switch ((ChronoUnit) unit)
+            {
+            case DAYS:
+                return plusDays(amountToAdd);
+            case WEEKS:
+                return plusDays(Math.multiplyExact(amountToAdd, 7));
+            case MONTHS:
+                return plusMonths(amountToAdd);
+            case YEARS:
+                return plusMonths(Math.multiplyExact(amountToAdd, 12));
+            case DECADES:
+                return plusMonths(Math.multiplyExact(amountToAdd, 120));
+            case CENTURIES:
+                return plusMonths(Math.multiplyExact(amountToAdd, 1200));
+            case MILLENNIA:
+                return plusMonths(Math.multiplyExact(amountToAdd, 12000));
+            case ERAS:
+                return with(ChronoField.ERA, Math.addExact(getLong(ChronoField.ERA), amountToAdd));
+            default:
+                throw new UnsupportedTemporalTypeException("Unsupported unit: " + unit);
+            }
+        }
+        return unit.addTo(this, amountToAdd);
+    }
+
+    @Override
+    public JalaliChronoLocalDate plus(TemporalAmount amount)
+    {
+        return (JalaliChronoLocalDate) ChronoLocalDate.super.plus(amount);
+    }
+
+    @Override
+    public JalaliChronoLocalDate minus(long amountToSubtract, TemporalUnit unit)
+    {
+        return (JalaliChronoLocalDate) ChronoLocalDate.super.minus(amountToSubtract, unit);
+    }
+
+    @Override
+    public JalaliChronoLocalDate minus(TemporalAmount amount)
+    {
+        return (JalaliChronoLocalDate) ChronoLocalDate.super.minus(amount);
+    }
+
+    public JalaliChronoLocalDate plusDays(long days)
+    {
+        if (days == 0)
+            return this;
+        return ofEpochDay(Math.addExact(toEpochDay(), days));
+    }
+
+    /**
+     * Adds months, keeping the day of month unless it is past the end of the
+     * resulting month, like {@link JalaliDate#plusMonths(long)}.
+     */
+    public JalaliChronoLocalDate plusMonths(long months)
+    {
+        if (months == 0)
+            return this;
+        long monthCount = Math.addExact(getProlepticMonth(), months);
+        long newYear = Math.floorDiv(monthCount, 12);
+        JalaliChronology.INSTANCE.range(ChronoField.YEAR).checkValidValue(newYear, ChronoField.YEAR);
+        return resolvePreviousValid((int) newYear, (int) Math.floorMod(monthCount, 12) + 1, day);
+    }
+
+    @Override
+    public long until(Temporal endExclusive, TemporalUnit unit)
+    {
+        JalaliChronoLocalDate end = getChronology().date(endExclusive);
+        if (unit instanceof ChronoUnit)
+        {
+            switch ((ChronoUnit) unit)
+            {
+            case DAYS:
+                return end.toEpochDay() - toEpochDay();
+            case WEEKS:
+                return (end.toEpochDay() - toEpochDay()) / 7;
+            case MONTHS:
+                return monthsUntil(end);
+            case YEARS:
+                return monthsUntil(end) / 12;
+            case DECADES:
+                return monthsUntil(end) / 120;
+            case CENTURIES:
+                return monthsUntil(end) / 1200;
+            case MILLENNIA:
+                return monthsUntil(end) / 12000;
+            case ERAS:
+                return end.getLong(ChronoField.ERA) - getLong(ChronoField.ERA);
+            default:
+                throw new UnsupportedTemporalTypeException("Unsupported unit: " + unit);
+            }
+        }
+        return unit.between(this, end);
+    }
+
+    @Override
+    public ChronoPeriod until(ChronoLocalDate endDateExclusive)
+    {
+        JalaliChronoLocalDate end = getChronology().date(endDateExclusive);
+        long totalMonths = end.getProlepticMonth() - getProlepticMonth();
+        int days = end.day - day;
+        if (totalMonths > 0 && days < 0)
+        {
+            totalMonths--;
+            days = (int) (end.toEpochDay() - plusMonths(totalMonths).toEpochDay());
+        }
+        else if (totalMonths < 0 && days > 0)
+        {
+            totalMonths++;
+            days -= end.lengthOfMonth();
+        }
+        return getChronology().period(Math.toIntExact(totalMonths / 12), (int) (totalMonths % 12), days);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ChronoLocalDateTime<JalaliChronoLocalDate> atTime(LocalTime localTime)
+    {
+        return (ChronoLocalDateTime<JalaliChronoLocalDate>) ChronoLocalDate.super.atTime(localTime);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof JalaliChronoLocalDate))
+            return false;
+        JalaliChronoLocalDate other = (JalaliChronoLocalDate) obj;
+        return year == other.year && month == other.month && day == other.day;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return getChronology().getId().hashCode() ^ (year << 9) ^ (month << 5) ^ day;
+    }
+
+    /**
+     * @return the chronology, era and date, e.g. Jalali AH 1394-05-01, in
+     *         the form of the chronology dates of the JDK
+     */
+    @Override
+    public String toString()
+    {
+        long yearOfEra = getLong(ChronoField.YEAR_OF_ERA);
+        StringBuilder sb = new StringBuilder(30);
+        sb.append(getChronology().getId()).append(' ').append(getEra()).append(' ').append(yearOfEra);
+        sb.append(month < 10 ? "-0" : "-").append(month);
+        sb.append(day < 10 ? "-0" : "-").append(day);
+        return sb.toString();
+    }
+
+    private int getDayOfYear()
+    {
+        return JalaliCalendar.daysBeforeMonth(month - 1) + day;
+    }
+
+    private int getDayOfWeek()
+    {
+        // 1970/01/01 was a Thursday, 4 in ISO numbering
+        return (int) Math.floorMod(toEpochDay() + 3, 7) + 1;
+    }
+
+    private long getProlepticMonth()
+    {
+        return year * 12L + month - 1;
+    }
+
+    private long monthsUntil(JalaliChronoLocalDate end)
+    {
+        long packed1 = getProlepticMonth() * 32L + day;
+        long packed2 = end.getProlepticMonth() * 32L + end.day;
+        return (packed2 - packed1) / 32;
+    }
+
+    private static JalaliChronoLocalDate resolvePreviousValid(int year, int month, int day)
+    {
+        JalaliChronology.INSTANCE.range(ChronoField.YEAR).checkValidValue(year, ChronoField.YEAR);
+        return new JalaliChronoLocalDate(year, month, Math.min(day, JalaliCalendar.monthLength(month - 1, year)));
+    }
+
+}
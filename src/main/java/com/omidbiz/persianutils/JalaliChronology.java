@@ -0,0 +1,230 @@
+package com.omidbiz.persianutils;
+
+import java.io.Serializable;
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.chrono.AbstractChronology;
+import java.time.chrono.ChronoLocalDateTime;
+import java.time.chrono.ChronoZonedDateTime;
+import java.time.chrono.Era;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.ValueRange;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author omidp
+ *         <p>
+ *         java.time view of the calendar of {@link JalaliCalendar}: the same
+ *         33-year leap rule and day numbering, through the epoch-day
+ *         arithmetic, so that Jalali dates work with
+ *         <code>java.time.temporal</code> adjusters and with
+ *         <code>DateTimeFormatter.withChronology</code>.
+ *         </p>
+ *         <p>
+ *         The chronology id is <code>Jalali</code> and the calendar type is
+ *         <code>persian</code>; both are registered, so
+ *         <code>Chronology.of("Jalali")</code> finds it. Years run from
+ *         {@value #MIN_YEAR} to {@value #MAX_YEAR}, which keeps every date
+ *         inside the range of <code>LocalDate</code>.
+ *         </p>
+ */
+public final class JalaliChronology extends AbstractChronology implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    public static final JalaliChronology INSTANCE = new JalaliChronology();
+
+    public static final int MIN_YEAR = -999999000;
+
+    public static final int MAX_YEAR = 999999000;
+
+    private static final ValueRange YEAR_RANGE = ValueRange.of(MIN_YEAR, MAX_YEAR);
+
+    private static final ValueRange YEAR_OF_ERA_RANGE = ValueRange.of(1, MAX_YEAR, 1L - MIN_YEAR);
+
+    private static final ValueRange PROLEPTIC_MONTH_RANGE = ValueRange.of(MIN_YEAR * 12L, MAX_YEAR * 12L + 11);
+
+    private static final ValueRange MONTH_OF_YEAR_RANGE = ValueRange.of(1, 12);
+
+    private static final ValueRange DAY_OF_MONTH_RANGE = ValueRange.of(1, 29, 31);
+
+    private static final ValueRange DAY_OF_YEAR_RANGE = ValueRange.of(1, 365, 366);
+
+    private static final ValueRange ALIGNED_WEEK_OF_MONTH_RANGE = ValueRange.of(1, 5);
+
+    private static final ValueRange ALIGNED_WEEK_OF_YEAR_RANGE = ValueRange.of(1, 53);
+
+    private static final ValueRange ERA_RANGE = ValueRange.of(0, 1);
+
+    /**
+     * @deprecated only for the service loader, use {@link #INSTANCE}
+     */
+    @Deprecated
+    public JalaliChronology()
+    {
+    }
+
+    private Object readResolve()
+    {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getId()
+    {
+        return "Jalali";
+    }
+
+    @Override
+    public String getCalendarType()
+    {
+        return "persian";
+    }
+
+    /**
+     * @param month
+     *            one-based month, 1 for Farvardin
+     * @throws DateTimeException
+     *             if the date is not valid
+     */
+    @Override
+    public JalaliChronoLocalDate date(int prolepticYear, int month, int dayOfMonth)
+    {
+        return JalaliChronoLocalDate.of(prolepticYear, month, dayOfMonth);
+    }
+
+    @Override
+    public JalaliChronoLocalDate date(Era era, int yearOfEra, int month, int dayOfMonth)
+    {
+        return date(prolepticYear(era, yearOfEra), month, dayOfMonth);
+    }
+
+    @Override
+    public JalaliChronoLocalDate dateYearDay(int prolepticYear, int dayOfYear)
+    {
+        return JalaliChronoLocalDate.ofYearDay(prolepticYear, dayOfYear);
+    }
+
+    @Override
+    public JalaliChronoLocalDate dateYearDay(Era era, int yearOfEra, int dayOfYear)
+    {
+        return dateYearDay(prolepticYear(era, yearOfEra), dayOfYear);
+    }
+
+    @Override
+    public JalaliChronoLocalDate dateEpochDay(long epochDay)
+    {
+        return JalaliChronoLocalDate.ofEpochDay(epochDay);
+    }
+
+    @Override
+    public JalaliChronoLocalDate dateNow()
+    {
+        return dateNow(Clock.systemDefaultZone());
+    }
+
+    @Override
+    public JalaliChronoLocalDate dateNow(ZoneId zone)
+    {
+        return dateNow(Clock.system(zone));
+    }
+
+    @Override
+    public JalaliChronoLocalDate dateNow(Clock clock)
+    {
+        return date(LocalDate.now(clock));
+    }
+
+    @Override
+    public JalaliChronoLocalDate date(TemporalAccessor temporal)
+    {
+        if (temporal instanceof JalaliChronoLocalDate)
+            return (JalaliChronoLocalDate) temporal;
+        return dateEpochDay(temporal.getLong(ChronoField.EPOCH_DAY));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ChronoLocalDateTime<JalaliChronoLocalDate> localDateTime(TemporalAccessor temporal)
+    {
+        return (ChronoLocalDateTime<JalaliChronoLocalDate>) super.localDateTime(temporal);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ChronoZonedDateTime<JalaliChronoLocalDate> zonedDateTime(TemporalAccessor temporal)
+    {
+        return (ChronoZonedDateTime<JalaliChronoLocalDate>) super.zonedDateTime(temporal);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ChronoZonedDateTime<JalaliChronoLocalDate> zonedDateTime(Instant instant, ZoneId zone)
+    {
+        return (ChronoZonedDateTime<JalaliChronoLocalDate>) super.zonedDateTime(instant, zone);
+    }
+
+    /**
+     * Same rule as {@link JalaliCalendar#isLeapYear(int)}.
+     */
+    @Override
+    public boolean isLeapYear(long prolepticYear)
+    {
+        return JalaliCalendar.isLeapYear((int) Math.floorMod(prolepticYear, 33L));
+    }
+
+    @Override
+    public int prolepticYear(Era era, int yearOfEra)
+    {
+        if (!(era instanceof JalaliEra))
+            throw new ClassCastException("Era must be JalaliEra");
+        return era == JalaliEra.AH ? yearOfEra : 1 - yearOfEra;
+    }
+
+    @Override
+    public JalaliEra eraOf(int eraValue)
+    {
+        return JalaliEra.of(eraValue);
+    }
+
+    @Override
+    public List<Era> eras()
+    {
+        return Arrays.<Era> asList(JalaliEra.values());
+    }
+
+    @Override
+    public ValueRange range(ChronoField field)
+    {
+        switch (field)
+        {
+        case DAY_OF_MONTH:
+            return DAY_OF_MONTH_RANGE;
+        case DAY_OF_YEAR:
+            return DAY_OF_YEAR_RANGE;
+        case ALIGNED_WEEK_OF_MONTH:
+            return ALIGNED_WEEK_OF_MONTH_RANGE;
+        case ALIGNED_WEEK_OF_YEAR:
+            return ALIGNED_WEEK_OF_YEAR_RANGE;
+        case MONTH_OF_YEAR:
+            return MONTH_OF_YEAR_RANGE;
+        case PROLEPTIC_MONTH:
+            return PROLEPTIC_MONTH_RANGE;
+        case YEAR_OF_ERA:
+            return YEAR_OF_ERA_RANGE;
+        case YEAR:
+            return YEAR_RANGE;
+        case ERA:
+            return ERA_RANGE;
+        default:
+            return field.range();
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.omidbiz.persianutils;
+
+import java.io.Serializable;
+import java.time.temporal.ChronoField;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Immutable Jalali date without time of day or time zone, held as int
+ *         year, month and day. Uses the same leap rule and day numbering as
+ *         {@link JalaliCalendar} but goes straight through the epoch-day
+ *         (days since 1970/01/01) arithmetic, with no Calendar and no String
+ *         in between.
+ *         </p>
+ *         <p>
+ *         Months are one-based, 1 for Farvardin to 12 for Esfand. Years are
+ *         proleptic, 0 is 1 BH, and range over the years of
+ *         {@link JalaliChronology}.
+ *         </p>
+ */
+public final class JalaliDate implements Comparable<JalaliDate>, Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * the largest year whose dates fit a packed yyyyMMdd int
+     */
+    private static final int MAX_PACKED_YEAR = 214747;
+
+    private final int year;
+
+    private final int month;
+
+    private final int day;
+
+    private JalaliDate(int year, int month, int day)
+    {
+        this.year = year;
+        this.month = month;
+        this.day = day;
+    }
+
+    /**
+     * @param month
+     *            one-based month, 1 for Farvardin
+     * @throws IllegalArgumentException
+     *             if year is outside the years of {@link JalaliChronology},
+     *             or month or day is out of range for the year
+     */
+    public static JalaliDate of(int year, int month, int day)
+    {
+        checkYear(year);
+        if (month < 1 || month > 12)
+            throw new IllegalArgumentException("invalid month " + month);
+        if (day < 1 || day > JalaliCalendar.monthLength(month - 1, year))
+            throw new IllegalArgumentException("invalid day " + day + " for " + year + "/" + month);
+        return new JalaliDate(year, month, day);
+    }
+
+    /**
+     * @param epochDay
+     *            days since 1970/01/01
+     * @throws IllegalArgumentException
+     *             if the date is outside the years of {@link JalaliChronology}
+     */
+    public static JalaliDate ofEpochDay(long epochDay)
+    {
+        if (!ChronoField.EPOCH_DAY.range().isValidValue(epochDay))
+            throw new IllegalArgumentException("invalid epoch day " + epochDay);
+        long yearAndDay = JalaliCalendar.yearAndDayOfYear(epochDay);
+        long year = yearAndDay >> 16;
+        checkYear(year);
+        int dayOfYear = (int) (yearAndDay & 0xFFFF);
+        int month = JalaliCalendar.monthOfDayOfYear(dayOfYear);
+        return new JalaliDate((int) year, month + 1, dayOfYear - JalaliCalendar.daysBeforeMonth(month) + 1);
+    }
+
+    private static void checkYear(long year)
+    {
+        if (year < JalaliChronology.MIN_YEAR || year > JalaliChronology.MAX_YEAR)
+            throw new IllegalArgumentException("invalid year " + year);
+    }
+
+    /**
+     * @return days since 1970/01/01
+     */
+    public long toEpochDay()
+    {
+        return JalaliCalendar.jalaliToEpochDay(year, month - 1, day);
+    }
+
+    public int getYear()
+    {
+        return year;
+    }
+
+    /**
+     * @return one-based month, 1 for Farvardin
+     */
+    public int getMonth()
+    {
+        return month;
+    }
+
+    public int getDayOfMonth()
+    {
+        return day;
+    }
+
+    public boolean isLeapYear()
+    {
+        return JalaliCalendar.isLeapYear(year);
+    }
+
+    public int lengthOfMonth()
+    {
+        return JalaliCalendar.monthLength(month - 1, year);
+    }
+
+    public int lengthOfYear()
+    {
+        return isLeapYear() ? 366 : 365;
+    }
+
+    public JalaliDate plusDays(long days)
+    {
+        if (days == 0)
+            return this;
+        return ofEpochDay(Math.addExact(toEpochDay(), days));
+    }
+
+    /**
+     * Adds months, keeping the day of month unless it is past the end of the
+     * resulting month, e.g. Shahrivar 31 plus one month is Mehr 30.
+     *
+     * @throws IllegalArgumentException
+     *             if the result is outside the years of
+     *             {@link JalaliChronology}
+     */
+    public JalaliDate plusMonths(long months)
+    {
+        if (months == 0)
+            return this;
+        long monthCount = Math.addExact(year * 12L + (month - 1), months);
+        long newYear = Math.floorDiv(monthCount, 12);
+        checkYear(newYear);
+        int newMonth = (int) Math.floorMod(monthCount, 12) + 1;
+        int newDay = Math.min(day, JalaliCalendar.monthLength(newMonth - 1, (int) newYear));
+        return new JalaliDate((int) newYear, newMonth, newDay);
+    }
+
+    /**
+     * @return this date packed as yyyyMMdd, see
+     *         {@link PersianDateConverter#packDate(int, int, int)}
+     * @throws IllegalArgumentException
+     *             if the year is outside -214747 to 214747, which do not fit
+     *             an int as yyyyMMdd
+     */
+    public int toPackedDate()
+    {
+        if (year < -MAX_PACKED_YEAR || year > MAX_PACKED_YEAR)
+            throw new IllegalArgumentException("year " + year + " does not fit a packed date");
+        return PersianDateConverter.packDate(year, month, day);
+    }
+
+    @Override
+    public int compareTo(JalaliDate other)
+    {
+        int cmp = year - other.year;
+        if (cmp == 0)
+        {
+            cmp = month - other.month;
+            if (cmp == 0)
+                cmp = day - other.day;
+        }
+        return cmp;
+    }
+
+    public boolean isBefore(JalaliDate other)
+    {
+        return compareTo(other) < 0;
+    }
+
+    public boolean isAfter(JalaliDate other)
+    {
+        return compareTo(other) > 0;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof JalaliDate))
+            return false;
+        JalaliDate other = (JalaliDate) obj;
+        return year == other.year && month == other.month && day == other.day;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (year << 9) ^ (month << 5) ^ day;
+    }
+
+    /**
+     * @return yyyy/MM/dd
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(10);
+        sb.append(year).append('/');
+        if (month < 10)
+            sb.append('0');
+        sb.append(month).append('/');
+        if (day < 10)
+            sb.append('0');
+        sb.append(day);
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.omidbiz.persianutils;
+
+import java.time.DateTimeException;
+import java.time.chrono.Era;
+
+/**
+ * @author omidp
+ *         <p>
+ *         The two eras of {@link JalaliChronology}, with the same values as
+ *         {@link JalaliCalendar#BH} and {@link JalaliCalendar#AH}.
+ *         </p>
+ */
+public enum JalaliEra implements Era
+{
+
+    /**
+     * Before Hegira, proleptic years 0 and earlier
+     */
+    BH,
+
+    /**
+     * After Hegira, proleptic years 1 and later
+     */
+    AH;
+
+    /**
+     * @param jalaliEra
+     *            0 for BH, 1 for AH
+     * @throws DateTimeException
+     *             if the value is not a valid era
+     */
+    public static JalaliEra of(int jalaliEra)
+    {
+        switch (jalaliEra)
+        {
+        case 0:
+            return BH;
+        case 1:
+            return AH;
+        default:
+            throw new DateTimeException("Invalid era: " + jalaliEra);
+        }
+    }
+
+    @Override
+    public int getValue()
+    {
+        return ordinal();
+    }
+
+}
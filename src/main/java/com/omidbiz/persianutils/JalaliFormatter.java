@@ -0,0 +1,425 @@
+package com.omidbiz.persianutils;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Immutable, thread-safe formatter of instants as solar dates. The
+ *         pattern is compiled once; formatting goes from epoch millis
+ *         straight to the solar fields through the same arithmetic as
+ *         {@link PersianDateConverter#GregorianToSolar(String)}, with no
+ *         intermediate gregorian string and no Calendar.
+ *         </p>
+ *         <p>
+ *         Pattern letters, as in SimpleDateFormat:
+ *         <ul>
+ *         <li>y - year, yy for the last two digits</li>
+ *         <li>M - month, MMM or longer for the month name (Farvardin ...)</li>
+ *         <li>d - day of month</li>
+ *         <li>E - day of week name</li>
+ *         <li>H - hour of day (0-23)</li>
+ *         <li>m - minute</li>
+ *         <li>s - second</li>
+ *         <li>S - millisecond</li>
+ *         </ul>
+ *         Repeating a numeric letter pads it with zeros to that width. Text
+ *         in single quotes is copied as is, '' is a single quote, and any
+ *         other character that is not a letter is copied too.
+ *         </p>
+ */
+public final class JalaliFormatter
+{
+
+    private static final String[] MONTH_NAMES = { "فروردین", "اردیبهشت", "خرداد", "تیر", "مرداد", "شهریور", "مهر",
+            "آبان", "آذر", "دی", "بهمن", "اسفند" };
+
+    // Sunday first, like Calendar.DAY_OF_WEEK - 1
+    private static final String[] DAY_NAMES = { "یکشنبه", "دوشنبه", "سه‌شنبه", "چهارشنبه", "پنجشنبه", "جمعه",
+            "شنبه" };
+
+    private static final int LITERAL = 0;
+    private static final int YEAR = 1;
+    private static final int MONTH = 2;
+    private static final int MONTH_NAME = 3;
+    private static final int DAY = 4;
+    private static final int DAY_NAME = 5;
+    private static final int HOUR = 6;
+    private static final int MINUTE = 7;
+    private static final int SECOND = 8;
+    private static final int MILLISECOND = 9;
+    private static final int TWO_DIGIT_YEAR = 10;
+
+    private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+    // the years of any long of millis, about 292 million either way
+    private static final int MAX_YEAR_DIGITS = 9;
+
+    // milliseconds, the widest of the other fields
+    private static final int MAX_FIELD_DIGITS = 3;
+
+    private static final int MAX_NAME_LENGTH = 8;
+
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>()
+    {
+        @Override
+        protected char[] initialValue()
+        {
+            return new char[64];
+        }
+    };
+
+    private final String pattern;
+
+    private final int[] types;
+
+    private final int[] widths;
+
+    private final String[] literals;
+
+    private final int maxLength;
+
+    private final boolean persianDigits;
+
+    private final TimeZone zone;
+
+    private JalaliFormatter(String pattern, int[] types, int[] widths, String[] literals, int maxLength,
+            boolean persianDigits, TimeZone zone)
+    {
+        this.pattern = pattern;
+        this.types = types;
+        this.widths = widths;
+        this.literals = literals;
+        this.maxLength = maxLength;
+        this.persianDigits = persianDigits;
+        this.zone = zone;
+    }
+
+    /**
+     * @return a formatter for the pattern, with latin digits, formatting in
+     *         the default time zone at the time of each call
+     * @throws IllegalArgumentException
+     *             if the pattern has an unknown letter or an unterminated
+     *             quote
+     */
+    public static JalaliFormatter ofPattern(String pattern)
+    {
+        return ofPattern(pattern, false);
+    }
+
+    /**
+     * @param persianDigits
+     *            write digits as Extended Arabic-Indic (Persian) digits
+     */
+    public static JalaliFormatter ofPattern(String pattern, boolean persianDigits)
+    {
+        int length = pattern.length();
+        int[] types = new int[length];
+        int[] widths = new int[length];
+        String[] literals = new String[length];
+        int count = 0;
+        int maxLength = 0;
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < length)
+        {
+            char ch = pattern.charAt(i);
+            if (ch == '\'')
+            {
+                // '' is a quote, otherwise quoted text up to the next quote
+                if (i + 1 < length && pattern.charAt(i + 1) == '\'')
+                {
+                    literal.append('\'');
+                    i += 2;
+                    continue;
+                }
+                int end = i + 1;
+                while (true)
+                {
+                    if (end == length)
+                        throw new IllegalArgumentException("Unterminated quote in pattern " + pattern);
+                    if (pattern.charAt(end) == '\'')
+                    {
+                        if (end + 1 < length && pattern.charAt(end + 1) == '\'')
+                        {
+                            literal.append('\'');
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    literal.append(pattern.charAt(end++));
+                }
+                i = end + 1;
+                continue;
+            }
+            if (!((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z')))
+            {
+                literal.append(ch);
+                i++;
+                continue;
+            }
+            int width = 1;
+            while (i + width < length && pattern.charAt(i + width) == ch)
+                width++;
+            int type;
+            switch (ch)
+            {
+            case 'y':
+                type = width == 2 ? TWO_DIGIT_YEAR : YEAR;
+                break;
+            case 'M':
+                type = width >= 3 ? MONTH_NAME : MONTH;
+                break;
+            case 'd':
+                type = DAY;
+                break;
+            case 'E':
+                type = DAY_NAME;
+                break;
+            case 'H':
+                type = HOUR;
+                break;
+            case 'm':
+                type = MINUTE;
+                break;
+            case 's':
+                type = SECOND;
+                break;
+            case 'S':
+                type = MILLISECOND;
+                break;
+            default:
+                throw new IllegalArgumentException("Illegal pattern character '" + ch + "'");
+            }
+            if (literal.length() > 0)
+            {
+                literals[count] = literal.toString();
+                maxLength += literal.length();
+                literal.setLength(0);
+                count++;
+            }
+            types[count] = type;
+            widths[count] = width;
+            maxLength += maxLength(type, width);
+            count++;
+            i += width;
+        }
+        if (literal.length() > 0)
+        {
+            literals[count] = literal.toString();
+            maxLength += literal.length();
+            count++;
+        }
+        int[] t = new int[count];
+        int[] w = new int[count];
+        String[] l = new String[count];
+        System.arraycopy(types, 0, t, 0, count);
+        System.arraycopy(widths, 0, w, 0, count);
+        System.arraycopy(literals, 0, l, 0, count);
+        return new JalaliFormatter(pattern, t, w, l, maxLength, persianDigits, null);
+    }
+
+    /**
+     * @return a copy of this formatter that formats in the given zone, or in
+     *         the default zone at the time of each call if <code>null</code>
+     */
+    public JalaliFormatter withZone(TimeZone zone)
+    {
+        return new JalaliFormatter(pattern, types, widths, literals, maxLength, persianDigits,
+                zone == null ? null : (TimeZone) zone.clone());
+    }
+
+    public String getPattern()
+    {
+        return pattern;
+    }
+
+    public String format(Date date)
+    {
+        return format(date.getTime());
+    }
+
+    public String format(long epochMillis)
+    {
+        char[] buffer = buffer();
+        return new String(buffer, 0, format(epochMillis, buffer, 0));
+    }
+
+    public StringBuilder formatTo(long epochMillis, StringBuilder sb)
+    {
+        char[] buffer = buffer();
+        return sb.append(buffer, 0, format(epochMillis, buffer, 0));
+    }
+
+    public Appendable formatTo(long epochMillis, Appendable appendable) throws IOException
+    {
+        char[] buffer = buffer();
+        int length = format(epochMillis, buffer, 0);
+        for (int i = 0; i < length; i++)
+            appendable.append(buffer[i]);
+        return appendable;
+    }
+
+    /**
+     * Writes the formatted instant into <code>dest</code> starting at
+     * <code>offset</code>.
+     *
+     * @return the number of chars written
+     * @throws ArrayIndexOutOfBoundsException
+     *             if <code>dest</code> has less than {@link #getMaxLength()}
+     *             chars after <code>offset</code>
+     * @throws IllegalArgumentException
+     *             if the local time of the instant in the zone is past the
+     *             range of a long
+     */
+    public int format(long epochMillis, char[] dest, int offset)
+    {
+        if (offset < 0 || dest.length - offset < maxLength)
+            throw new ArrayIndexOutOfBoundsException("need " + maxLength + " chars at " + offset);
+        TimeZone tz = zone != null ? zone : TimeZone.getDefault();
+        int zoneOffset = tz.getOffset(epochMillis);
+        long local = epochMillis + zoneOffset;
+        if (((epochMillis ^ local) & (zoneOffset ^ local)) < 0)
+            throw new IllegalArgumentException("local time of " + epochMillis + " overflows");
+        long epochDay = floorDivide(local, ONE_DAY);
+        int millisOfDay = (int) (local - epochDay * ONE_DAY);
+        // not packed as yyyyMMdd, which overflows past year 214748
+        long yearAndDay = PersianDateConverter.solarYearAndDayOfYear(epochDay);
+        int year = (int) (yearAndDay >> 16);
+        int yday = (int) (yearAndDay & 0xFFFF) + 1;
+        int month = PersianDateConverter.solarMonthOfDayOfYear(yday);
+        int day = yday - PersianDateConverter.solarDaysBeforeMonth(month);
+        int pos = offset;
+        for (int i = 0; i < types.length; i++)
+        {
+            int width = widths[i];
+            switch (types[i])
+            {
+            case LITERAL:
+                String literal = literals[i];
+                literal.getChars(0, literal.length(), dest, pos);
+                pos += literal.length();
+                break;
+            case YEAR:
+                pos = appendNumber(dest, pos, year, width);
+                break;
+            case TWO_DIGIT_YEAR:
+                pos = appendNumber(dest, pos, (int) floorMod(year, 100), 2);
+                break;
+            case MONTH:
+                pos = appendNumber(dest, pos, month, width);
+                break;
+            case MONTH_NAME:
+                pos = appendName(dest, pos, MONTH_NAMES[month - 1]);
+                break;
+            case DAY:
+                pos = appendNumber(dest, pos, day, width);
+                break;
+            case DAY_NAME:
+                // 1970/01/01 was a Thursday
+                pos = appendName(dest, pos, DAY_NAMES[(int) floorMod(epochDay + 4, 7)]);
+                break;
+            case HOUR:
+                pos = appendNumber(dest, pos, millisOfDay / 3600000, width);
+                break;
+            case MINUTE:
+                pos = appendNumber(dest, pos, millisOfDay / 60000 % 60, width);
+                break;
+            case SECOND:
+                pos = appendNumber(dest, pos, millisOfDay / 1000 % 60, width);
+                break;
+            case MILLISECOND:
+                pos = appendNumber(dest, pos, millisOfDay % 1000, width);
+                break;
+            }
+        }
+        return pos - offset;
+    }
+
+    /**
+     * @return the most chars a single call can write, the space
+     *         {@link #format(long, char[], int)} needs
+     */
+    public int getMaxLength()
+    {
+        return maxLength;
+    }
+
+    @Override
+    public String toString()
+    {
+        return pattern;
+    }
+
+    /**
+     * @return the most chars a field of the given type and pattern width
+     *         takes; only the year can be negative
+     */
+    private static int maxLength(int type, int width)
+    {
+        switch (type)
+        {
+        case MONTH_NAME:
+        case DAY_NAME:
+            return MAX_NAME_LENGTH;
+        case YEAR:
+            return 1 + Math.max(width, MAX_YEAR_DIGITS);
+        case TWO_DIGIT_YEAR:
+            return 2;
+        default:
+            return Math.max(width, MAX_FIELD_DIGITS);
+        }
+    }
+
+    private char[] buffer()
+    {
+        char[] buffer = BUFFER.get();
+        if (buffer.length < maxLength)
+        {
+            buffer = new char[maxLength];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    private int appendNumber(char[] dest, int pos, int value, int width)
+    {
+        if (value < 0)
+        {
+            dest[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10)
+            digits++;
+        char zero = persianDigits ? '۰' : '0';
+        for (int i = digits; i < width; i++)
+            dest[pos++] = zero;
+        for (int i = pos + digits - 1; i >= pos; i--)
+        {
+            dest[i] = (char) (zero + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    private static int appendName(char[] dest, int pos, String name)
+    {
+        name.getChars(0, name.length(), dest, pos);
+        return pos + name.length();
+    }
+
+    private static long floorDivide(long numerator, long denominator)
+    {
+        return (numerator >= 0) ? numerator / denominator : ((numerator + 1) / denominator) - 1;
+    }
+
+    private static long floorMod(long numerator, long denominator)
+    {
+        return numerator - floorDivide(numerator, denominator) * denominator;
+    }
+
+}
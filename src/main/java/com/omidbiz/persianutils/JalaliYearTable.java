@@ -0,0 +1,88 @@
+package com.omidbiz.persianutils;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Epoch day (days since 1970/01/01) of Farvardin 1 for every year of
+ *         a fixed window, so that year boundaries inside the window are a
+ *         table lookup instead of cycle arithmetic. The owner fills the table
+ *         with its own leap rule and keeps that arithmetic as the fallback
+ *         outside of the window.
+ *         </p>
+ *         <p>
+ *         The window defaults to 1200 - 1600 and can be changed with the
+ *         <code>com.omidbiz.persianutils.yearTable.firstYear</code> and
+ *         <code>com.omidbiz.persianutils.yearTable.lastYear</code> system
+ *         properties.
+ *         </p>
+ */
+final class JalaliYearTable
+{
+
+    static final int FIRST_YEAR = Integer.getInteger("com.omidbiz.persianutils.yearTable.firstYear", 1200);
+
+    static final int LAST_YEAR = Integer.getInteger("com.omidbiz.persianutils.yearTable.lastYear", 1600);
+
+    // average year length, only used to guess the index before correcting it
+    private static final long AVERAGE_YEAR_TENTHOUSANDTHS = 3652422;
+
+    private final int firstYear;
+
+    private final int lastYear;
+
+    /**
+     * starts[i] is Farvardin 1 of firstYear + i, the extra last element is
+     * Farvardin 1 of the year after the window
+     */
+    private final int[] starts;
+
+    /**
+     * @param firstYear
+     *            first year of the window
+     * @param starts
+     *            epoch day of Farvardin 1 of <code>firstYear</code> and every
+     *            following year, including the year after the window
+     */
+    JalaliYearTable(int firstYear, int[] starts)
+    {
+        this.firstYear = firstYear;
+        this.lastYear = firstYear + starts.length - 2;
+        this.starts = starts;
+    }
+
+    boolean containsYear(long year)
+    {
+        return year >= firstYear && year <= lastYear;
+    }
+
+    boolean containsDay(long epochDay)
+    {
+        return starts.length > 1 && epochDay >= starts[0] && epochDay < starts[starts.length - 1];
+    }
+
+    /**
+     * @return epoch day of Farvardin 1 of the given year, which must be
+     *         inside the window
+     */
+    int yearStart(long year)
+    {
+        return starts[(int) (year - firstYear)];
+    }
+
+    /**
+     * @return the year the given epoch day falls in, which must be inside the
+     *         window
+     */
+    int yearOf(long epochDay)
+    {
+        int i = (int) ((epochDay - starts[0]) * 10000 / AVERAGE_YEAR_TENTHOUSANDTHS);
+        if (i > starts.length - 2)
+            i = starts.length - 2;
+        while (starts[i] > epochDay)
+            i--;
+        while (starts[i + 1] <= epochDay)
+            i++;
+        return firstYear + i;
+    }
+
+}
@@ -20,40 +20,17 @@ public class PersianCharacterUnifier
         return INSTANCE;
     }
 
-    public String unify(String input)
-    {
-        if (input == null)
-            return null;
-        char[] charArray = input.toCharArray();
-        String output = "";
-        for (int i = 0; i < charArray.length; i++)
-        {
-            output += replace(charArray[i]);
-        }
-        return output;
-    }
-
     /**
-     * @see Integer#toHexString(int);
-     * @param toHexString
-     *            (char)
-     * @return
+     * Replaces Arabic ye and kaf with their Persian forms and right-to-left
+     * marks with a space, by the rules of {@link PersianNormalizer#unifier()}.
+     *
+     * @param input
+     *            text to unify, may be null
+     * @return the input itself if it has nothing to replace
      */
-    private char replace(char ch)
+    public String unify(String input)
     {
-        switch (ch)
-        {
-        case 0x643:
-            return 0x6a9;// ye
-        case 0x64a:
-            return 0x6cc;// ke
-        case 0x200f:
-            return 0x20;
-        case 0x202b:
-            return 0x20;
-        default:
-            return ch;
-        }
+        return PersianNormalizer.unifier().normalize(input);
     }
 
     public String escapeUnicode(char ch)
@@ -15,11 +15,9 @@
  ******************************************************************************/
 package com.omidbiz.persianutils;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.TimeZone;
 
 /**
  * @author omid pourhadi Email : omidpourhadi AT gmail DOT com
@@ -27,20 +25,25 @@ import java.util.regex.Pattern;
 public class PersianDateConverter
 {
 
-    private final static Pattern patternDate = Pattern.compile("^(\\d{4})(-|/)(\\d{2})(-|/)(\\d{2})$", Pattern.CASE_INSENSITIVE);
-    private final static Pattern patternDateTime = Pattern.compile("^(\\d{4})(-|/)(\\d{2})(-|/)(\\d{2})\\s(\\d{2}):(\\d{2})$",
-            Pattern.CASE_INSENSITIVE);    
-    private final static Pattern patternDateTimeSec = Pattern.compile("^(\\d{4})(-|/)(\\d{2})(-|/)(\\d{2})\\s(\\d{2}):(\\d{2}):(\\d{2})$",
-            Pattern.CASE_INSENSITIVE);
-    private final static Pattern patternDateTimeSec2 = Pattern.compile("^(\\d{4})(-|/)(\\d{2})(-|/)(\\d{2})\\s(\\d{2}):(\\d{2}):(\\d{2})(\\.\\d+)*",
-            Pattern.CASE_INSENSITIVE);
-
     private String[] formats = { "yyyy/MM/dd", "yyyy/MM/dd HH:mm", "yyyy/MM/dd HH:mm:ss", "EEE MMM d HH:mm:ss z yyyy",
             "EEE, d MMM yyyy HH:mm:ss", "EEE MMM d HH:mm:ss z yyyy", "yyyy-MM-dd HH:mm", "yyyy-MM-dd", "yyyy-MM-dd HH:mm:ss" };
 
-    private static final double PERSIAN_EPOCH = 1948320.5;;
+    // Julian days 1948320.5 (Farvardin 1, 1) and 1721425.5 (January 1, 1)
+    // expressed as days since 1970/01/01
+    private static final long PERSIAN_EPOCH_DAY = -492267;
+
+    private static final long GREGORIAN_EPOCH_DAY = -719162;
+
+    // Farvardin 1, 475, the start of the current 2820 year grand cycle
+    private static final long SOLAR_475_EPOCH_DAY = -319142;
+
+    private static final long ONE_DAY = 24 * 60 * 60 * 1000L;
+
+    private static final JalaliYearTable YEAR_STARTS = createYearTable();
+
+    private static final JalaliFormatter SOLAR_DATE = JalaliFormatter.ofPattern("yyyy/MM/dd");
 
-    private static final double GREGORIAN_EPOCH = 1721425.5;
+    private static final JalaliFormatter SOLAR_DATE_TIME = JalaliFormatter.ofPattern("yyyy/MM/dd HH:mm");
 
     private static final PersianDateConverter INSTANCE = new PersianDateConverter();
 
@@ -65,15 +68,13 @@ public class PersianDateConverter
             return "";
         MatcherHolder match = new MatcherHolder().match(solarDateAsTimeStamp);
         //
-        DateConverter pdc = new DateConverter(match.getDelimiter());
-        DateHolder dh = pdc.convertJdnToGregorian(pdc.convertPersianToJdn(match.getM_currentYear(), match.getM_currentMonth(),
+        int gregorian = epochDayToGregorian(solarToEpochDay(match.getM_currentYear(), match.getM_currentMonth(),
                 match.getM_currentDay()));
-        StringBuilder result = new StringBuilder(dh.toString());
-        if (patternDateTime.matcher(solarDateAsTimeStamp).matches()
-        		|| patternDateTimeSec.matcher(solarDateAsTimeStamp).matches()
-        		|| patternDateTimeSec2.matcher(solarDateAsTimeStamp).matches())
+        StringBuilder result = new StringBuilder(24);
+        appendDate(result, gregorian, match.getDelimiter());
+        if (match.hasTime())
         {
-            result.append(match.toString());
+            match.appendTime(result);
         }
         return result.toString();
     }
@@ -85,15 +86,12 @@ public class PersianDateConverter
         Calendar cal = Calendar.getInstance();
         MatcherHolder match = new MatcherHolder().match(solarDateAsTimeStamp);
         //
-        DateConverter pdc = new DateConverter(match.getDelimiter());
-        DateHolder dh = pdc.convertJdnToGregorian(pdc.convertPersianToJdn(match.getM_currentYear(), match.getM_currentMonth(),
+        int gregorian = epochDayToGregorian(solarToEpochDay(match.getM_currentYear(), match.getM_currentMonth(),
                 match.getM_currentDay()));
-        cal.set(Calendar.YEAR, dh.getYear());
-        cal.set(Calendar.MONTH, dh.getMonth()-1);//zero-base index
-        cal.set(Calendar.DATE, dh.getDay());
-        if (patternDateTime.matcher(solarDateAsTimeStamp).matches()
-        		|| patternDateTimeSec.matcher(solarDateAsTimeStamp).matches()
-        		|| patternDateTimeSec2.matcher(solarDateAsTimeStamp).matches())
+        cal.set(Calendar.YEAR, packedYear(gregorian));
+        cal.set(Calendar.MONTH, packedMonth(gregorian) - 1);//zero-base index
+        cal.set(Calendar.DATE, packedDay(gregorian));
+        if (match.hasTime())
         {
             cal.set(Calendar.HOUR_OF_DAY, match.getM_currentHour());
             cal.set(Calendar.MINUTE, match.getM_currentMin());
@@ -108,16 +106,13 @@ public class PersianDateConverter
             return "";
         MatcherHolder match = new MatcherHolder().match(gregorianDateAsTimeStamp);
         //
-        DateConverter pdc = new DateConverter(match.getDelimiter());
-
-        DateHolder dh = pdc.convertJdnToPersian(pdc.convertGregorianToJdn(match.getM_currentYear(), match.getM_currentMonth(),
+        int solar = epochDayToSolar(gregorianToEpochDay(match.getM_currentYear(), match.getM_currentMonth(),
                 match.getM_currentDay()));
-        StringBuilder result = new StringBuilder(dh.toString());
-        if (patternDateTime.matcher(gregorianDateAsTimeStamp).matches() 
-        		|| patternDateTimeSec.matcher(gregorianDateAsTimeStamp).matches()
-        		|| patternDateTimeSec2.matcher(gregorianDateAsTimeStamp).matches())
+        StringBuilder result = new StringBuilder(24);
+        appendDate(result, solar, match.getDelimiter());
+        if (match.hasTime())
         {
-            result.append(match.toString());
+            match.appendTime(result);
         }
         return result.toString();
     }
@@ -126,108 +121,251 @@ public class PersianDateConverter
     {
         if (gregorianDateAsTimeStamp == null)
             return "";
-        SimpleDateFormat sdf = new SimpleDateFormat();
         if (includeTime)
-            sdf.applyPattern("yyy/MM/dd HH:mm");
-        else
-            sdf.applyPattern("yyy/MM/dd");
-        return GregorianToSolar(sdf.format(gregorianDateAsTimeStamp));
+            return SOLAR_DATE_TIME.format(gregorianDateAsTimeStamp);
+        return SOLAR_DATE.format(gregorianDateAsTimeStamp);
     }
     
+    /**
+     * Converts <code>length</code> epoch days (days since 1970/01/01),
+     * starting at <code>srcOffset</code>, to solar dates packed as yyyyMMdd
+     * into <code>dest</code> starting at <code>destOffset</code>.
+     * 
+     * @see #packedYear(int)
+     */
+    public void epochDaysToSolar(int[] src, int srcOffset, int[] dest, int destOffset, int length)
+    {
+        checkRange(src.length, srcOffset, length);
+        checkRange(dest.length, destOffset, length);
+        for (int i = 0; i < length; i++)
+        {
+            dest[destOffset + i] = epochDayToSolar(src[srcOffset + i]);
+        }
+    }
+
+    /**
+     * Converts <code>length</code> instants in epoch millis, starting at
+     * <code>srcOffset</code>, to the packed yyyyMMdd solar date they fall on
+     * in the given time zone, into <code>dest</code> starting at
+     * <code>destOffset</code>.
+     */
+    public void epochMillisToSolar(long[] src, int srcOffset, int[] dest, int destOffset, int length, TimeZone zone)
+    {
+        checkRange(src.length, srcOffset, length);
+        checkRange(dest.length, destOffset, length);
+        for (int i = 0; i < length; i++)
+        {
+            long millis = src[srcOffset + i];
+            dest[destOffset + i] = epochDayToSolar(floorDivide(millis + zone.getOffset(millis), ONE_DAY));
+        }
+    }
+
+    /**
+     * Converts <code>length</code> packed yyyyMMdd solar dates, starting at
+     * <code>srcOffset</code>, to epoch days into <code>dest</code> starting
+     * at <code>destOffset</code>.
+     */
+    public void solarToEpochDays(int[] src, int srcOffset, int[] dest, int destOffset, int length)
+    {
+        checkRange(src.length, srcOffset, length);
+        checkRange(dest.length, destOffset, length);
+        for (int i = 0; i < length; i++)
+        {
+            int solar = src[srcOffset + i];
+            dest[destOffset + i] = (int) solarToEpochDay(packedYear(solar), packedMonth(solar), packedDay(solar));
+        }
+    }
+
+    /**
+     * Converts <code>length</code> packed yyyyMMdd solar dates, starting at
+     * <code>srcOffset</code>, to the epoch millis of the start of that day in
+     * the given time zone, into <code>dest</code> starting at
+     * <code>destOffset</code>.
+     */
+    public void solarToEpochMillis(int[] src, int srcOffset, long[] dest, int destOffset, int length, TimeZone zone)
+    {
+        checkRange(src.length, srcOffset, length);
+        checkRange(dest.length, destOffset, length);
+        int rawOffset = zone.getRawOffset();
+        for (int i = 0; i < length; i++)
+        {
+            int solar = src[srcOffset + i];
+            long local = solarToEpochDay(packedYear(solar), packedMonth(solar), packedDay(solar)) * ONE_DAY;
+            long millis = local - zone.getOffset(local - rawOffset);
+            // midnight skipped by a daylight saving gap, take the first instant of the day
+            if (millis + zone.getOffset(millis) < local)
+                millis = local - rawOffset;
+            dest[destOffset + i] = millis;
+        }
+    }
+
+    private static void checkRange(int arrayLength, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > arrayLength - length)
+            throw new ArrayIndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length "
+                    + arrayLength);
+    }
+
+    /**
+     * @param year
+     *            gregorian year
+     * @param month
+     *            gregorian month, one-based
+     * @param day
+     *            gregorian day of month
+     * @return the solar date packed as yyyyMMdd, read it with
+     *         {@link #packedYear(int)}, {@link #packedMonth(int)} and
+     *         {@link #packedDay(int)}
+     */
+    public int getSolarDate(int year, int month, int day)
+    {
+        return epochDayToSolar(gregorianToEpochDay(year, month, day));
+    }
+
     public int getSolarYear(int year, int month, int day)
     {
-        String gDate = year+"/"+month+"/"+day;
-        String solarDate = GregorianToSolar(gDate);
-        return new MatcherHolder().match(solarDate).getM_currentYear();
+        return packedYear(getSolarDate(year, month, day));
     }
     
     public int getSolarMonth(int year, int month, int day)
     {
-        String gDate = year+"/"+month+"/"+day;
-        String solarDate = GregorianToSolar(gDate);
-        return new MatcherHolder().match(solarDate).getM_currentMonth();
+        return packedMonth(getSolarDate(year, month, day));
     }
     
     public int getSolarDay(int year, int month, int day)
     {
-        String gDate = year+"/"+month+"/"+day;
-        String solarDate = GregorianToSolar(gDate);
-        return new MatcherHolder().match(solarDate).getM_currentDay();
+        return packedDay(getSolarDate(year, month, day));
+    }
+
+    /**
+     * @param year
+     *            solar year
+     * @param month
+     *            solar month, one-based
+     * @param day
+     *            solar day of month
+     * @return the gregorian date packed as yyyyMMdd
+     */
+    public int getGregorianDate(int year, int month, int day)
+    {
+        return epochDayToGregorian(solarToEpochDay(year, month, day));
     }
     
     public int getGregorianYear(int year, int month, int day)
     {
-        String solarDate = year+"/"+month+"/"+day;
-        String gDate = SolarToGregorian(solarDate);
-        return new MatcherHolder().match(gDate).getM_currentDay();
+        return packedYear(getGregorianDate(year, month, day));
+    }
+
+    public int getGregorianMonth(int year, int month, int day)
+    {
+        return packedMonth(getGregorianDate(year, month, day));
+    }
+
+    public int getGregorianDay(int year, int month, int day)
+    {
+        return packedDay(getGregorianDate(year, month, day));
     }
 
     /**
      * @author omidp
      *         <p>
-     *         separate the given date as holder
+     *         separate the given date as holder. The date is scanned once,
+     *         char by char, for one of the layouts yyyy/MM/dd,
+     *         yyyy/MM/dd HH:mm, yyyy/MM/dd HH:mm:ss and
+     *         yyyy/MM/dd HH:mm:ss.S (either '/' or '-' as delimiter)
      *         </p>
      */
-    private final class MatcherHolder
+    private static final class MatcherHolder
     {
+        static final int LAYOUT_DATE = 0;
+        static final int LAYOUT_DATE_TIME = 1;
+        static final int LAYOUT_DATE_TIME_SEC = 2;
+        static final int LAYOUT_DATE_TIME_SEC_FRACTION = 3;
+
         int m_currentYear;
         int m_currentMonth;
         int m_currentDay;
         int m_currentHour;
         int m_currentMin;
         int m_currentSec;
-        String delimiter = "/";
-        StringBuilder sb = new StringBuilder();
+        char delimiter = '/';
+        int layout;
 
-        public MatcherHolder match(String solarDateAsTimeStamp)
+        public MatcherHolder match(CharSequence solarDateAsTimeStamp)
         {
-            Matcher timeMatcher = patternDateTime.matcher(solarDateAsTimeStamp);
-            Matcher timeSecMatcher = patternDateTimeSec.matcher(solarDateAsTimeStamp);
-            Matcher dateMatcher = patternDate.matcher(solarDateAsTimeStamp);
-            Matcher timeSecMatcher2 = patternDateTimeSec2.matcher(solarDateAsTimeStamp);
-            if (timeMatcher.matches())
-            {
-                // yyyy/MM/dd HH:mm
-                m_currentYear = Integer.parseInt(timeMatcher.group(1));
-                m_currentMonth = Integer.parseInt(timeMatcher.group(3));
-                m_currentDay = Integer.parseInt(timeMatcher.group(5));
-                m_currentHour = Integer.parseInt(timeMatcher.group(6));
-                m_currentMin = Integer.parseInt(timeMatcher.group(7));
-                delimiter = timeMatcher.group(2);
-            }
-            else if(timeSecMatcher.matches())
+            CharSequence s = solarDateAsTimeStamp;
+            int length = s.length();
+            // yyyy-MM-dd
+            if (length < 10 || !isDelimiter(s.charAt(4)) || !isDelimiter(s.charAt(7)))
+                throw invalidFormat();
+            m_currentYear = parseDigits(s, 0, 4);
+            m_currentMonth = parseDigits(s, 5, 2);
+            m_currentDay = parseDigits(s, 8, 2);
+            delimiter = s.charAt(4);
+            layout = LAYOUT_DATE;
+            if (length == 10)
+                return this;
+            // yyyy/MM/dd HH:mm
+            if (length < 16 || !isWhitespace(s.charAt(10)) || s.charAt(13) != ':')
+                throw invalidFormat();
+            m_currentHour = parseDigits(s, 11, 2);
+            m_currentMin = parseDigits(s, 14, 2);
+            layout = LAYOUT_DATE_TIME;
+            if (length == 16)
+                return this;
+            // yyyy/MM/dd HH:mm:ss
+            if (length < 19 || s.charAt(16) != ':')
+                throw invalidFormat();
+            m_currentSec = parseDigits(s, 17, 2);
+            layout = LAYOUT_DATE_TIME_SEC;
+            if (length == 19)
+                return this;
+            // yyyy/MM/dd HH:mm:ss.S, any number of .digits groups
+            int i = 19;
+            while (i < length)
             {
-            	// yyyy/MM/dd HH:mm
-                m_currentYear = Integer.parseInt(timeSecMatcher.group(1));
-                m_currentMonth = Integer.parseInt(timeSecMatcher.group(3));
-                m_currentDay = Integer.parseInt(timeSecMatcher.group(5));
-                m_currentHour = Integer.parseInt(timeSecMatcher.group(6));
-                m_currentMin = Integer.parseInt(timeSecMatcher.group(7));
-                m_currentSec = Integer.parseInt(timeSecMatcher.group(8));
-                delimiter = timeSecMatcher.group(2);
+                if (s.charAt(i) != '.' || i + 1 == length || !isDigit(s.charAt(i + 1)))
+                    throw invalidFormat();
+                i += 2;
+                while (i < length && isDigit(s.charAt(i)))
+                    i++;
             }
-            else if(timeSecMatcher2.matches())
+            layout = LAYOUT_DATE_TIME_SEC_FRACTION;
+            return this;
+        }
+
+        private static int parseDigits(CharSequence s, int start, int count)
+        {
+            int value = 0;
+            for (int i = start; i < start + count; i++)
             {
-            	m_currentYear = Integer.parseInt(timeSecMatcher2.group(1));
-                m_currentMonth = Integer.parseInt(timeSecMatcher2.group(3));
-                m_currentDay = Integer.parseInt(timeSecMatcher2.group(5));
-                m_currentHour = Integer.parseInt(timeSecMatcher2.group(6));
-                m_currentMin = Integer.parseInt(timeSecMatcher2.group(7));
-                m_currentSec = Integer.parseInt(timeSecMatcher2.group(8));
-                delimiter = timeSecMatcher2.group(2);
+                char ch = s.charAt(i);
+                if (!isDigit(ch))
+                    throw invalidFormat();
+                value = value * 10 + (ch - '0');
             }
-            else
-            {
-                if (dateMatcher.matches() == false)
-                    throw new IllegalArgumentException("can not match date with valid format");
-                // yyy-MM-dd
-                m_currentYear = Integer.parseInt(dateMatcher.group(1));
-                m_currentMonth = Integer.parseInt(dateMatcher.group(3));
-                m_currentDay = Integer.parseInt(dateMatcher.group(5));
-                delimiter = dateMatcher.group(2);
+            return value;
+        }
 
-            }
-            return this;
+        private static boolean isDigit(char ch)
+        {
+            return ch >= '0' && ch <= '9';
+        }
+
+        private static boolean isDelimiter(char ch)
+        {
+            return ch == '/' || ch == '-';
+        }
+
+        // same set as \s in java.util.regex
+        private static boolean isWhitespace(char ch)
+        {
+            return ch == ' ' || ch == '\t' || ch == '\n' || ch == 0x0B || ch == '\f' || ch == '\r';
+        }
+
+        private static IllegalArgumentException invalidFormat()
+        {
+            return new IllegalArgumentException("can not match date with valid format");
         }
 
         public int getM_currentYear()
@@ -260,221 +398,245 @@ public class PersianDateConverter
             return m_currentSec;
         }
 
-        public String getDelimiter()
+        public char getDelimiter()
         {
             return delimiter;
         }
-        
-        
 
-        @Override
-        public String toString()
+        public boolean hasTime()
+        {
+            return layout != LAYOUT_DATE;
+        }
+
+        public void appendTime(StringBuilder sb)
         {
-            sb.append(" ");
+            sb.append(' ');
             if (getM_currentHour() < 10)
-                sb.append("0");
-            sb.append(getM_currentHour()).append(":");
+                sb.append('0');
+            sb.append(getM_currentHour()).append(':');
             if (getM_currentMin() < 10)
-                sb.append("0");
+                sb.append('0');
             sb.append(getM_currentMin());
             if(getM_currentSec() < 10 && getM_currentSec() > 0)
-            	sb.append("0").append(getM_currentSec());
+            	sb.append('0').append(getM_currentSec());
             if(getM_currentSec() > 10)
             	sb.append(getM_currentSec());
-            return sb.toString();
         }
 
     }
 
     /**
-     * @author omidp
-     *         <p>
-     *         Hold the converted date as separator
-     *         </p>
+     * Appends a packed <code>yyyyMMdd</code> date as year, month and day
+     * separated by the given delimiter, month and day zero padded.
      */
-    private final class DateHolder
+    private static void appendDate(StringBuilder sb, int packedDate, char delimiter)
     {
+        int month = packedMonth(packedDate);
+        int day = packedDay(packedDate);
+        sb.append(packedYear(packedDate)).append(delimiter);
+        if (month < 10)
+            sb.append('0');
+        sb.append(month).append(delimiter);
+        if (day < 10)
+            sb.append('0');
+        sb.append(day);
+    }
 
-        private double year, month, day;
-        private StringBuilder sb;
-        private String delimiter;
+    /*
+     * Epoch-day kernel
+     *
+     * All conversions go through the number of days since 1970/01/01
+     * (Gregorian), held in a long, and return dates packed in an int as
+     * yyyyMMdd (year * 10000 + month * 100 + day). The arithmetic is the
+     * same Julian day based algorithm this class always used (2820 year
+     * cycles for the solar calendar), carried out on integers only: no
+     * floating point and no objects per call. Remainders are floored, so
+     * that dates before the cycle bases (475 AP, 1 AD) convert too.
+     */
 
-        public DateHolder(double year, double month, double day, String delimiter)
-        {
-            this.year = year;
-            this.month = month;
-            this.day = day;
-            this.delimiter = delimiter;
-            sb = new StringBuilder();
-        }
+    /**
+     * @return the date packed in an int as yyyyMMdd, month and day are
+     *         one-based
+     */
+    public static int packDate(int year, int month, int day)
+    {
+        return year * 10000 + month * 100 + day;
+    }
 
-        public int getYear()
-        {
-            return (int) year;
-        }
+    public static int packedYear(int packedDate)
+    {
+        return (int) floorDivide(packedDate, 10000);
+    }
 
-        public int getMonth()
-        {
-            return (int) month;
-        }
+    /**
+     * @return one-based month of a packed yyyyMMdd date
+     */
+    public static int packedMonth(int packedDate)
+    {
+        return (int) (floorMod(packedDate, 10000) / 100);
+    }
 
-        public int getDay()
-        {
-            return (int) day;
-        }
+    public static int packedDay(int packedDate)
+    {
+        return (int) (floorMod(packedDate, 100));
+    }
 
-        @Override
-        public String toString()
-        {
-            sb.append((int) year).append(delimiter);
-            if (month < 10)
-                sb.append("0");
-            sb.append((int) month);
-            sb.append(delimiter);
-            if (day < 10)
-                sb.append("0");
-            sb.append((int) day);
-            return sb.toString();
-        }
+    /**
+     * @return days since 1970/01/01 of the given solar date, month and day
+     *         are one-based
+     */
+    static long solarToEpochDay(long year, long month, long day)
+    {
+        if (YEAR_STARTS.containsYear(year))
+            return YEAR_STARTS.yearStart(year) + solarMonthOffset(month) + day - 1;
+        return cycleSolarToEpochDay(year, month, day);
     }
 
-    private class DateConverter
+    // PERSIAN_TO_JD -- the 2820 year cycle arithmetic behind the year table
+    private static long cycleSolarToEpochDay(long year, long month, long day)
     {
-        private String delimiter;
+        long epbase = year - ((year >= 0) ? 474 : 473);
+        long epyear = 474 + floorMod(epbase, 2820);
+        return day + solarMonthOffset(month) + floorDivide((epyear * 682) - 110, 2816) + (epyear - 1) * 365
+                + floorDivide(epbase, 2820) * 1029983 + (PERSIAN_EPOCH_DAY - 1);
+    }
 
-        public DateConverter(String delimiter)
-        {
-            this.delimiter = delimiter;
-        }
+    /**
+     * @return the solar date of the given epoch day, packed as yyyyMMdd
+     */
+    static int epochDayToSolar(long epochDay)
+    {
+        long yearAndDay = solarYearAndDayOfYear(epochDay);
+        int yday = (int) (yearAndDay & 0xFFFF) + 1;
+        int month = solarMonthOfDayOfYear(yday);
+        return packDate((int) (yearAndDay >> 16), month, yday - (int) solarMonthOffset(month));
+    }
 
-        // PERSIAN_TO_JD -- Determine Julian day from Persian date
-        public double convertPersianToJdn(double year, double month, double day)
+    /**
+     * @return the solar year of the given epoch day shifted left by 16 bits,
+     *         or'ed with the zero-based day of year; unlike a packed date the
+     *         year does not overflow
+     */
+    static long solarYearAndDayOfYear(long epochDay)
+    {
+        if (YEAR_STARTS.containsDay(epochDay))
         {
-            double epbase, epyear;
-
-            epbase = year - ((year >= 0) ? 474 : 473);
-            epyear = 474 + mod(epbase, 2820);
-
-            return day + ((month <= 7) ? ((month - 1) * 31) : (((month - 1) * 30) + 6)) + Math.floor(((epyear * 682) - 110) / 2816)
-                    + (epyear - 1) * 365 + Math.floor(epbase / 2820) * 1029983 + (PERSIAN_EPOCH - 1);
+            int year = YEAR_STARTS.yearOf(epochDay);
+            return ((long) year << 16) | (epochDay - YEAR_STARTS.yearStart(year));
         }
-
-        public DateHolder convertJdnToPersian(double jd)
+        long year, ycycle;
+        long depoch = epochDay - SOLAR_475_EPOCH_DAY;
+        long cycle = floorDivide(depoch, 1029983);
+        long cyear = depoch - cycle * 1029983;
+        if (cyear == 1029982)
         {
-            double year, month, day, depoch, cycle, cyear, ycycle, aux1, aux2, yday;
-
-            jd = Math.floor(jd) + 0.5;
-
-            depoch = jd - convertPersianToJdn(475, 1, 1);
-            cycle = Math.floor(depoch / 1029983);
-            cyear = mod(depoch, 1029983);
-            if (cyear == 1029982)
-            {
-                ycycle = 2820;
-            }
-            else
-            {
-                aux1 = Math.floor(cyear / 366);
-                aux2 = mod(cyear, 366);
-                ycycle = Math.floor(((2134 * aux1) + (2816 * aux2) + 2815) / 1028522) + aux1 + 1;
-            }
-            year = ycycle + (2820 * cycle) + 474;
-            if (year <= 0)
-            {
-                year--;
-            }
-            yday = (jd - convertPersianToJdn(year, 1, 1)) + 1;
-            month = (yday <= 186) ? Math.ceil(yday / 31) : Math.ceil((yday - 6) / 30);
-            day = (jd - convertPersianToJdn(year, month, 1)) + 1;
-
-            return new DateHolder(year, month, day, delimiter);
+            ycycle = 2820;
         }
-
-        /**
-         * @param jdn
-         * @return
-         */
-        public DateHolder convertJdnToGregorian(double jd)
+        else
         {
-            double wjd, depoch, quadricent, dqc, cent, dcent, quad, dquad, yindex, dyindex, year, yearday, leapadj;
-
-            wjd = Math.floor(jd - 0.5) + 0.5;
-            depoch = wjd - GREGORIAN_EPOCH;
-            quadricent = Math.floor(depoch / 146097);
-            dqc = mod(depoch, 146097);
-            cent = Math.floor(dqc / 36524);
-            dcent = mod(dqc, 36524);
-            quad = Math.floor(dcent / 1461);
-            dquad = mod(dcent, 1461);
-            yindex = Math.floor(dquad / 365);
-            year = (quadricent * 400) + (cent * 100) + (quad * 4) + yindex;
-            if (!((cent == 4) || (yindex == 4)))
-            {
-                year++;
-            }
-            yearday = wjd - convertGregorianToJdn(year, 1, 1);
-            leapadj = ((wjd < convertGregorianToJdn(year, 3, 1)) ? 0 : (Leap_Gregorian(year) ? 1 : 2));
-            double month = Math.floor((((yearday + leapadj) * 12) + 373) / 367);
-            double day = (wjd - convertGregorianToJdn(year, month, 1)) + 1;
-
-            return new DateHolder(year, month, day, delimiter);
+            long aux1 = floorDivide(cyear, 366);
+            long aux2 = cyear % 366;
+            ycycle = floorDivide((2134 * aux1) + (2816 * aux2) + 2815, 1028522) + aux1 + 1;
         }
-
-        public double convertGregorianToJdn(double year, double month, int day)
+        year = ycycle + (2820 * cycle) + 474;
+        if (year <= 0)
         {
-            return (GREGORIAN_EPOCH - 1) + (365 * (year - 1)) + Math.floor((year - 1) / 4) + (-Math.floor((year - 1) / 100))
-                    + Math.floor((year - 1) / 400)
-                    + Math.floor((((367 * month) - 362) / 12) + ((month <= 2) ? 0 : (Leap_Gregorian(year) ? -1 : -2)) + day);
+            year--;
         }
+        return (year << 16) | (epochDay - solarToEpochDay(year, 1, 1));
+    }
 
-        // LEAP_GREGORIAN -- Is a given year in the Gregorian calendar a leap
-        // year ?
-        public boolean Leap_Gregorian(double year)
-        {
-            return ((year % 4) == 0) && (!(((year % 100) == 0) && ((year % 400) != 0)));
-        }
+    /**
+     * @return the one-based month of a one-based day of the solar year
+     */
+    static int solarMonthOfDayOfYear(int yday)
+    {
+        return (yday <= 186) ? (yday + 30) / 31 : (yday + 23) / 30;
+    }
 
-        /**
-         * @param jdn
-         * @return
-         */
-        public DateHolder convertJdnToJulian(double jdn)
-        {
-            double z, a, alpha, b, c, d, e, year, month, day, td = 0;
+    /**
+     * @return the days of the solar year before the one-based month
+     */
+    static int solarDaysBeforeMonth(int month)
+    {
+        return (int) solarMonthOffset(month);
+    }
 
-            td += 0.5;
-            z = Math.floor(td);
+    /**
+     * Solar year table, filled from the cycle arithmetic.
+     */
+    private static JalaliYearTable createYearTable()
+    {
+        int[] starts = new int[Math.max(0, JalaliYearTable.LAST_YEAR - JalaliYearTable.FIRST_YEAR + 1) + 1];
+        for (int i = 0; i < starts.length; i++)
+        {
+            starts[i] = (int) cycleSolarToEpochDay(JalaliYearTable.FIRST_YEAR + i, 1, 1);
+        }
+        return new JalaliYearTable(JalaliYearTable.FIRST_YEAR, starts);
+    }
 
-            a = z;
-            b = a + 1524;
-            c = Math.floor((b - 122.1) / 365.25);
-            d = Math.floor(365.25 * c);
-            e = Math.floor((b - d) / 30.6001);
+    /**
+     * @return days since 1970/01/01 of the given (proleptic) gregorian date,
+     *         month and day are one-based
+     */
+    static long gregorianToEpochDay(long year, long month, long day)
+    {
+        long y = year - 1;
+        return (GREGORIAN_EPOCH_DAY - 1) + (365 * y) + floorDivide(y, 4) - floorDivide(y, 100) + floorDivide(y, 400)
+                + gregorianMonthOffset(year, month) + day;
+    }
 
-            month = Math.floor((e < 14) ? (e - 1) : (e - 13));
-            year = Math.floor((month > 2) ? (c - 4716) : (c - 4715));
-            day = b - d - Math.floor(30.6001 * e);
+    /**
+     * @return the gregorian date of the given epoch day, packed as yyyyMMdd
+     */
+    static int epochDayToGregorian(long epochDay)
+    {
+        long depoch = epochDay - GREGORIAN_EPOCH_DAY;
+        long quadricent = floorDivide(depoch, 146097);
+        long dqc = depoch - quadricent * 146097;
+        long cent = floorDivide(dqc, 36524);
+        long dcent = dqc % 36524;
+        long quad = floorDivide(dcent, 1461);
+        long dquad = dcent % 1461;
+        long yindex = floorDivide(dquad, 365);
+        long year = (quadricent * 400) + (cent * 100) + (quad * 4) + yindex;
+        if (!((cent == 4) || (yindex == 4)))
+        {
+            year++;
+        }
+        long yearStart = gregorianToEpochDay(year, 1, 1);
+        long yearday = epochDay - yearStart;
+        long leapadj = (yearday < (isGregorianLeap(year) ? 60 : 59)) ? 0 : (isGregorianLeap(year) ? 1 : 2);
+        long month = floorDivide(((yearday + leapadj) * 12) + 373, 367);
+        long day = yearday - gregorianMonthOffset(year, month) + 1;
+        return packDate((int) year, (int) month, (int) day);
+    }
 
-            /*
-             * If year is less than 1, subtract one to convert from a zero based
-             * date system to the common era system in which the year -1 (1
-             * B.C.E) is followed by year 1 (1 C.E.).
-             */
+    private static long solarMonthOffset(long month)
+    {
+        return (month <= 7) ? ((month - 1) * 31) : (((month - 1) * 30) + 6);
+    }
 
-            if (year < 1)
-            {
-                year--;
-            }
+    private static long gregorianMonthOffset(long year, long month)
+    {
+        return floorDivide((367 * month) - 362, 12) + ((month <= 2) ? 0 : (isGregorianLeap(year) ? -1 : -2));
+    }
 
-            return new DateHolder(year, month, day, delimiter);
-        }
+    // LEAP_GREGORIAN -- Is a given year in the Gregorian calendar a leap
+    // year ?
+    private static boolean isGregorianLeap(long year)
+    {
+        return ((year % 4) == 0) && (!(((year % 100) == 0) && ((year % 400) != 0)));
+    }
 
-        public double mod(double args1, double args2)
-        {
-            return args1 % args2;
-        }
+    private static long floorDivide(long numerator, long denominator)
+    {
+        return (numerator >= 0) ? numerator / denominator : ((numerator + 1) / denominator) - 1;
+    }
 
+    private static long floorMod(long numerator, long denominator)
+    {
+        return numerator - floorDivide(numerator, denominator) * denominator;
     }
-    
 
 }
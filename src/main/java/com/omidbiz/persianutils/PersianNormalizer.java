@@ -0,0 +1,361 @@
+package com.omidbiz.persianutils;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Character normalization by a set of rules fixed when it is built:
+ *         replacing characters with others, deleting characters and cleaning
+ *         up spaces and zero width non-joiners. The replacements and
+ *         deletions are precomputed into a table of all 64K chars, so that a
+ *         char costs one array load whatever the rules; deleted chars are
+ *         also kept in a bitmap. Chars below the lowest char with a rule,
+ *         such as all of Latin-1 for the Persian rules, skip the table when a
+ *         String is checked for changes.
+ *         </p>
+ *         <p>
+ *         Rules are applied once to each char of the input, not to the
+ *         results of each other, and a later rule for a char overrides an
+ *         earlier one. Normalizing a String returns the String itself when no
+ *         rule changes it. Instances are immutable and thread safe.
+ *         </p>
+ *
+ *         <pre>
+ * PersianNormalizer normalizer = PersianNormalizer.builder().persianLetters().digits('0')
+ *         .removeDiacritics().cleanSpaces().build();
+ * String key = normalizer.normalize(text);
+ * </pre>
+ */
+public final class PersianNormalizer
+{
+
+    static final char ZWNJ = '\u200C';
+
+    /**
+     * Table entry of a deleted char, which the bitmap tells from a
+     * replacement by U+FFFF.
+     */
+    static final char DELETED = '\uFFFF';
+
+    private static final PersianNormalizer UNIFIER = builder().replace('\u0643', '\u06A9').replace('\u064A', '\u06CC')
+            .replace('\u200F', ' ').replace('\u202B', ' ').build();
+
+    private static final PersianNormalizer SEARCH = builder().persianLetters().alefHamza().tehMarbuta().hehHamza()
+            .digits('0').removeTatweel().removeDiacritics().bidiMarks().cleanSpaces().build();
+
+    private final char[] map;
+
+    private final long[] deleted;
+
+    private final boolean cleanSpaces;
+
+    /**
+     * the lowest char that is replaced or deleted, 0x10000 if none is
+     */
+    private final int lowest;
+
+    private PersianNormalizer(char[] map, long[] deleted, boolean cleanSpaces)
+    {
+        this.map = map;
+        this.deleted = deleted;
+        this.cleanSpaces = cleanSpaces;
+        int c = 0;
+        while (c < map.length && map[c] == c && (deleted[c >>> 6] & 1L << c) == 0)
+            c++;
+        this.lowest = c;
+    }
+
+    /**
+     * @return the rules of {@link PersianCharacterUnifier}: Arabic kaf and
+     *         yeh to their Persian forms and the right-to-left mark and
+     *         embedding to a space
+     */
+    public static PersianNormalizer unifier()
+    {
+        return UNIFIER;
+    }
+
+    /**
+     * @return every rule of the builder, with ASCII digits, for search keys
+     */
+    public static PersianNormalizer search()
+    {
+        return SEARCH;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @param ch
+     *            a char
+     * @return the char that replaces it, itself if it is not replaced
+     */
+    public char map(char ch)
+    {
+        return isDeleted(ch) ? ch : map[ch];
+    }
+
+    /**
+     * @param ch
+     *            a char
+     * @return true if the char is deleted
+     */
+    public boolean isDeleted(char ch)
+    {
+        return (deleted[ch >>> 6] & 1L << ch) != 0;
+    }
+
+    /**
+     * @param input
+     *            text to normalize, may be null
+     * @return the input itself if no rule changes it
+     */
+    public String normalize(String input)
+    {
+        if (input == null)
+            return null;
+        int length = input.length();
+        int i = 0;
+        char previous = 0;
+        for (; i < length; i++)
+        {
+            char c = input.charAt(i);
+            if (c >= lowest && map[c] != c || cleanSpaces && isSpace(c) && isSpace(previous))
+                break;
+            previous = c;
+        }
+        if (i == length)
+            return input;
+        char[] chars = input.toCharArray();
+        return new String(chars, 0, normalize(chars, 0, length, i));
+    }
+
+    /**
+     * Normalizes chars in place; the text only gets shorter.
+     *
+     * @param chars
+     *            the text
+     * @param offset
+     *            the first char to normalize
+     * @param length
+     *            the number of chars to normalize
+     * @return the length of the normalized chars from offset
+     */
+    public int normalize(char[] chars, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > chars.length - length)
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + chars.length);
+        return normalize(chars, offset, length, offset) - offset;
+    }
+
+    /**
+     * Normalizes chars from start to offset + length, with those from
+     * offset to start already normalized and unchanged.
+     *
+     * @return the end of the normalized chars
+     */
+    private int normalize(char[] chars, int offset, int length, int start)
+    {
+        int end = offset + length;
+        int n = start;
+        char previous = n > offset ? chars[n - 1] : 0;
+        for (int i = start; i < end; i++)
+        {
+            char c = chars[i];
+            char m = map[c];
+            if (m == DELETED && isDeleted(c))
+                continue;
+            if (cleanSpaces && isSpace(m) && isSpace(previous))
+            {
+                // one space for a run, a non-joiner only between letters
+                if (m == ' ')
+                    chars[n - 1] = previous = ' ';
+                continue;
+            }
+            chars[n++] = previous = m;
+        }
+        return n;
+    }
+
+    /**
+     * @return the table entry of a char, {@link #DELETED} for a deleted char
+     *         as well
+     */
+    char lookup(char ch)
+    {
+        return map[ch];
+    }
+
+    boolean cleansSpaces()
+    {
+        return cleanSpaces;
+    }
+
+    static boolean isSpace(char ch)
+    {
+        return ch == ' ' || ch == ZWNJ;
+    }
+
+    /**
+     * Rules of a {@link PersianNormalizer}; a later rule for a char
+     * overrides an earlier one.
+     */
+    public static final class Builder
+    {
+
+        private final char[] map = new char[Character.MAX_VALUE + 1];
+
+        private final long[] deleted = new long[map.length / 64];
+
+        private boolean cleanSpaces;
+
+        private Builder()
+        {
+            for (int i = 0; i < map.length; i++)
+                map[i] = (char) i;
+        }
+
+        /**
+         * @param from
+         *            the char to replace
+         * @param to
+         *            the char that replaces it
+         * @return this builder
+         */
+        public Builder replace(char from, char to)
+        {
+            map[from] = to;
+            deleted[from >>> 6] &= ~(1L << from);
+            return this;
+        }
+
+        /**
+         * @param ch
+         *            the char to delete, not U+FFFF
+         * @return this builder
+         * @throws IllegalArgumentException
+         *             for U+FFFF, which is not a character
+         */
+        public Builder delete(char ch)
+        {
+            if (ch == DELETED)
+                throw new IllegalArgumentException("U+FFFF is not a character");
+            map[ch] = DELETED;
+            deleted[ch >>> 6] |= 1L << ch;
+            return this;
+        }
+
+        private Builder replace(char first, char last, char to)
+        {
+            for (char ch = first; ch <= last; ch++)
+                replace(ch, to);
+            return this;
+        }
+
+        private Builder delete(char first, char last)
+        {
+            for (char ch = first; ch <= last; ch++)
+                delete(ch);
+            return this;
+        }
+
+        /**
+         * Arabic kaf, yeh and alef maksura to Persian kaf and yeh.
+         */
+        public Builder persianLetters()
+        {
+            return replace('\u0643', '\u06A9').replace('\u064A', '\u06CC').replace('\u0649', '\u06CC');
+        }
+
+        /**
+         * Alef with hamza above or below, with wavy hamza and alef wasla to
+         * alef; alef with madda stays.
+         */
+        public Builder alefHamza()
+        {
+            return replace('\u0623', '\u0627').replace('\u0625', '\u0627').replace('\u0671', '\u0673', '\u0627');
+        }
+
+        /**
+         * Teh marbuta to heh.
+         */
+        public Builder tehMarbuta()
+        {
+            return replace('\u0629', '\u0647');
+        }
+
+        /**
+         * Heh with yeh above (heh with hamza) to heh.
+         */
+        public Builder hehHamza()
+        {
+            return replace('\u06C0', '\u0647');
+        }
+
+        /**
+         * ASCII, Arabic-Indic, and extended Arabic-Indic (Persian) digits to
+         * the digits from the given zero.
+         *
+         * @param zero
+         *            <code>'0'</code>, <code>'\u0660'</code> or
+         *            <code>'\u06F0'</code>
+         */
+        public Builder digits(char zero)
+        {
+            if (zero != '0' && zero != '\u0660' && zero != '\u06F0')
+                throw new IllegalArgumentException("not a zero digit: " + Integer.toHexString(zero));
+            for (int d = 0; d < 10; d++)
+            {
+                char to = (char) (zero + d);
+                replace((char) ('0' + d), to).replace((char) ('\u0660' + d), to).replace((char) ('\u06F0' + d), to);
+            }
+            return this;
+        }
+
+        /**
+         * Deletes tatweel (kashida).
+         */
+        public Builder removeTatweel()
+        {
+            return delete('\u0640');
+        }
+
+        /**
+         * Deletes the Arabic combining marks: harakat, tanwin, shadda,
+         * sukun, the combining madda and hamza and superscript alef.
+         */
+        public Builder removeDiacritics()
+        {
+            return delete('\u064B', '\u065F').delete('\u0670');
+        }
+
+        /**
+         * Bidirectional marks, embeddings and overrides to a space.
+         */
+        public Builder bidiMarks()
+        {
+            return replace('\u200E', '\u200F', ' ').replace('\u202A', '\u202E', ' ');
+        }
+
+        /**
+         * No-break and fixed width spaces to a space, a run of spaces to one
+         * space and no zero width non-joiner next to a space or another
+         * non-joiner.
+         */
+        public Builder cleanSpaces()
+        {
+            cleanSpaces = true;
+            return replace('\u00A0', ' ').replace('\u2000', '\u200A', ' ').replace('\u202F', ' ').replace('\u205F', ' ')
+                    .replace('\u3000', ' ');
+        }
+
+        public PersianNormalizer build()
+        {
+            return new PersianNormalizer(map.clone(), deleted.clone(), cleanSpaces);
+        }
+
+    }
+
+}
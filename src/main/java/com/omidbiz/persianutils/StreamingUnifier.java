@@ -0,0 +1,142 @@
+package com.omidbiz.persianutils;
+
+import java.nio.CharBuffer;
+import java.nio.charset.CoderResult;
+
+/**
+ * @author omidp
+ *         <p>
+ *         {@link PersianNormalizer} over a stream of text given as a sequence
+ *         of {@link CharBuffer}s, in constant memory, the way a
+ *         {@link java.nio.charset.CharsetDecoder} decodes: each call
+ *         normalizes as much of the input into the output as fits and leaves
+ *         both positions after what it did. The text comes out as
+ *         {@link PersianNormalizer#normalize(String)} would give it for the
+ *         whole of the input.
+ *         </p>
+ *         <p>
+ *         With the space cleanup rule a space or zero width non-joiner is
+ *         held until the next char that is kept, which tells whether it
+ *         stays; the last call, with <code>endOfInput</code> true, writes
+ *         it. An instance keeps the state of one stream and is not thread
+ *         safe; {@link #reset()} starts a new stream.
+ *         </p>
+ */
+public final class StreamingUnifier
+{
+
+    private final PersianNormalizer normalizer;
+
+    private final boolean cleanSpaces;
+
+    /**
+     * the last char written or held
+     */
+    private char previous;
+
+    private boolean held;
+
+    /**
+     * A stream of the rules of {@link PersianNormalizer#unifier()}.
+     */
+    public StreamingUnifier()
+    {
+        this(PersianNormalizer.unifier());
+    }
+
+    public StreamingUnifier(PersianNormalizer normalizer)
+    {
+        this.normalizer = normalizer;
+        this.cleanSpaces = normalizer.cleansSpaces();
+    }
+
+    public PersianNormalizer normalizer()
+    {
+        return normalizer;
+    }
+
+    /**
+     * Normalizes chars of the input into the output.
+     *
+     * @param in
+     *            the input, read from its position to its limit
+     * @param out
+     *            the output, written from its position
+     * @param endOfInput
+     *            true if the input holds the last chars of the stream
+     * @return {@link CoderResult#UNDERFLOW} when all the input is done, and
+     *         with <code>endOfInput</code> all the output written as well;
+     *         {@link CoderResult#OVERFLOW} when the output is full first
+     */
+    public CoderResult unify(CharBuffer in, CharBuffer out, boolean endOfInput)
+    {
+        int p = in.position();
+        int limit = in.limit();
+        int q = out.position();
+        int outLimit = out.limit();
+        char previous = this.previous;
+        boolean held = this.held;
+        CoderResult result = CoderResult.UNDERFLOW;
+        for (; p < limit; p++)
+        {
+            char c = in.get(p);
+            char m = normalizer.lookup(c);
+            if (m == PersianNormalizer.DELETED && normalizer.isDeleted(c))
+                continue;
+            if (cleanSpaces && PersianNormalizer.isSpace(m) && PersianNormalizer.isSpace(previous))
+            {
+                // a held non-joiner before a space becomes the space
+                if (m == ' ')
+                    previous = ' ';
+                continue;
+            }
+            if (q == outLimit)
+            {
+                result = CoderResult.OVERFLOW;
+                break;
+            }
+            if (held)
+            {
+                out.put(q++, previous);
+                held = false;
+                if (q == outLimit)
+                {
+                    result = CoderResult.OVERFLOW;
+                    break;
+                }
+            }
+            previous = m;
+            if (cleanSpaces && PersianNormalizer.isSpace(m))
+                held = true;
+            else
+                out.put(q++, m);
+        }
+        if (endOfInput && held && p == limit)
+        {
+            if (q == outLimit)
+            {
+                result = CoderResult.OVERFLOW;
+            }
+            else
+            {
+                out.put(q++, previous);
+                held = false;
+            }
+        }
+        in.position(p);
+        out.position(q);
+        this.previous = previous;
+        this.held = held;
+        return result;
+    }
+
+    /**
+     * Forgets the stream so far, including a held char.
+     */
+    public void reset()
+    {
+        previous = 0;
+        held = false;
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.omidbiz.persianutils;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * @author omidp
+ *         <p>
+ *         A reader of the text of another reader normalized as it is read, by
+ *         the rules of {@link PersianNormalizer#unifier()} or of a given
+ *         normalizer, through a buffer of a fixed size whatever the length of
+ *         the text. See {@link StreamingUnifier}. Mark and reset are not
+ *         supported.
+ *         </p>
+ */
+public class UnifyingReader extends FilterReader
+{
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final StreamingUnifier unifier;
+
+    /**
+     * chars read from the reader and not normalized yet, between position and
+     * limit
+     */
+    private final CharBuffer input = CharBuffer.allocate(BUFFER_SIZE);
+
+    private final char[] single = new char[1];
+
+    private boolean endOfInput;
+
+    public UnifyingReader(Reader in)
+    {
+        this(in, PersianNormalizer.unifier());
+    }
+
+    public UnifyingReader(Reader in, PersianNormalizer normalizer)
+    {
+        super(in);
+        unifier = new StreamingUnifier(normalizer);
+        input.flip();
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        synchronized (lock)
+        {
+            return read(single, 0, 1) == -1 ? -1 : single[0];
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException
+    {
+        synchronized (lock)
+        {
+            CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+            if (len == 0)
+                return 0;
+            while (true)
+            {
+                unifier.unify(input, out, endOfInput);
+                if (out.position() > off)
+                    return out.position() - off;
+                if (endOfInput)
+                    return -1;
+                // all of the input was normalized, or deleted or held
+                input.clear();
+                int n = in.read(input.array(), 0, input.capacity());
+                if (n < 0)
+                {
+                    endOfInput = true;
+                    n = 0;
+                }
+                input.limit(n);
+            }
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        if (n < 0L)
+            throw new IllegalArgumentException("skip value is negative");
+        char[] skipped = new char[(int) Math.min(n, BUFFER_SIZE)];
+        long remaining = n;
+        synchronized (lock)
+        {
+            while (remaining > 0)
+            {
+                int count = read(skipped, 0, (int) Math.min(remaining, skipped.length));
+                if (count == -1)
+                    break;
+                remaining -= count;
+            }
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean ready() throws IOException
+    {
+        synchronized (lock)
+        {
+            return input.hasRemaining() || in.ready();
+        }
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException
+    {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException
+    {
+        throw new IOException("reset() not supported");
+    }
+
+}
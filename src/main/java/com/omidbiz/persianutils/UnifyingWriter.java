@@ -0,0 +1,138 @@
+package com.omidbiz.persianutils;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * @author omidp
+ *         <p>
+ *         A writer that normalizes text on its way to another writer, by the
+ *         rules of {@link PersianNormalizer#unifier()} or of a given
+ *         normalizer, through a buffer of a fixed size whatever the length of
+ *         the text. See {@link StreamingUnifier}.
+ *         </p>
+ *         <p>
+ *         {@link #flush()} writes all the normalized text but a space or zero
+ *         width non-joiner that the space cleanup rule holds until the next
+ *         char; {@link #close()} writes that as well.
+ *         </p>
+ */
+public class UnifyingWriter extends FilterWriter
+{
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final CharBuffer EMPTY = CharBuffer.allocate(0);
+
+    private final StreamingUnifier unifier;
+
+    /**
+     * normalized chars not written to the writer yet, up to position
+     */
+    private final CharBuffer output = CharBuffer.allocate(BUFFER_SIZE);
+
+    private final char[] chars = new char[BUFFER_SIZE];
+
+    private boolean closed;
+
+    public UnifyingWriter(Writer out)
+    {
+        this(out, PersianNormalizer.unifier());
+    }
+
+    public UnifyingWriter(Writer out, PersianNormalizer normalizer)
+    {
+        super(out);
+        unifier = new StreamingUnifier(normalizer);
+    }
+
+    @Override
+    public void write(int c) throws IOException
+    {
+        synchronized (lock)
+        {
+            chars[0] = (char) c;
+            write(chars, 0, 1);
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+            CharBuffer in = CharBuffer.wrap(cbuf, off, len);
+            while (unifier.unify(in, output, false).isOverflow())
+                writeOutput();
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException
+    {
+        if (off < 0 || len < 0 || off > str.length() - len)
+            throw new IndexOutOfBoundsException("offset " + off + ", length " + len + ", size " + str.length());
+        synchronized (lock)
+        {
+            while (len > 0)
+            {
+                int n = Math.min(len, chars.length);
+                str.getChars(off, off + n, chars, 0);
+                write(chars, 0, n);
+                off += n;
+                len -= n;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        synchronized (lock)
+        {
+            ensureOpen();
+            writeOutput();
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        synchronized (lock)
+        {
+            if (closed)
+                return;
+            closed = true;
+            try
+            {
+                while (unifier.unify(EMPTY, output, true).isOverflow())
+                    writeOutput();
+                writeOutput();
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException
+    {
+        if (closed)
+            throw new IOException("Stream closed");
+    }
+
+    private void writeOutput() throws IOException
+    {
+        if (output.position() > 0)
+        {
+            out.write(output.array(), 0, output.position());
+            output.clear();
+        }
+    }
+
+}
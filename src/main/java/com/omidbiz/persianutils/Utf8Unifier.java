@@ -0,0 +1,376 @@
+package com.omidbiz.persianutils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CoderResult;
+
+/**
+ * @author omidp
+ *         <p>
+ *         {@link PersianCharacterUnifier#unify(String)} over UTF-8 bytes,
+ *         without decoding them: Arabic kaf <code>D9 83</code> and yeh
+ *         <code>D9 8A</code> are rewritten as Persian kaf <code>DA A9</code>
+ *         and yeh <code>DB 8C</code>, and the right-to-left mark
+ *         <code>E2 80 8F</code> and embedding <code>E2 80 AB</code> as a
+ *         space <code>20</code>. The text never gets longer, and it gets two
+ *         bytes shorter for each mark, so bytes can be unified in place.
+ *         </p>
+ *         <p>
+ *         Blocks of eight ASCII bytes are skipped with one test. Other bytes
+ *         are looked up in a table of the last bytes of the replaced chars,
+ *         which are rare in Persian text, and only then are the bytes before
+ *         them compared; branching on the lead bytes instead would mispredict
+ *         on most of the letters, which start with <code>D8</code> to
+ *         <code>DB</code>. Malformed UTF-8 is copied as it is.
+ *         </p>
+ */
+public final class Utf8Unifier
+{
+
+    private static final long NON_ASCII = 0x8080808080808080L;
+
+    private static final byte LEAD_2 = (byte) 0xD9, LEAD_3 = (byte) 0xE2, SECOND_3 = (byte) 0x80;
+
+    private static final byte KAF = (byte) 0x83, YEH = (byte) 0x8A, RLM = (byte) 0x8F, RLE = (byte) 0xAB;
+
+    /**
+     * true for the last bytes of the replaced chars
+     */
+    private static final boolean[] LAST = new boolean[256];
+
+    static
+    {
+        LAST[KAF & 0xFF] = true;
+        LAST[YEH & 0xFF] = true;
+        LAST[RLM & 0xFF] = true;
+        LAST[RLE & 0xFF] = true;
+    }
+
+    private Utf8Unifier()
+    {
+    }
+
+    /**
+     * Unifies UTF-8 bytes in place.
+     *
+     * @param bytes
+     *            the text
+     * @param offset
+     *            the first byte to unify
+     * @param length
+     *            the number of bytes to unify
+     * @return the length of the unified bytes from offset
+     */
+    public static int unify(byte[] bytes, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset > bytes.length - length)
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + bytes.length);
+        int end = offset + length;
+        int i = offset;
+        int w = offset;
+        // bytes from copyFrom to a replaced char are unchanged and go to w
+        int copyFrom = offset;
+        while (i < end)
+        {
+            if (i <= end - 8 && (bytes[i] | bytes[i + 1] | bytes[i + 2] | bytes[i + 3] | bytes[i + 4] | bytes[i + 5]
+                    | bytes[i + 6] | bytes[i + 7]) >= 0)
+            {
+                i += 8;
+                continue;
+            }
+            for (int blockEnd = Math.min(i + 8, end); i < blockEnd;)
+            {
+                byte last = bytes[i++];
+                if (!LAST[last & 0xFF])
+                    continue;
+                int start = i - length(last);
+                if (start < copyFrom || !isLead(bytes[start], bytes[start + 1], last))
+                    continue;
+                if (w != copyFrom)
+                    System.arraycopy(bytes, copyFrom, bytes, w, start - copyFrom);
+                w = put(bytes, w + start - copyFrom, last);
+                copyFrom = i;
+            }
+        }
+        if (w != copyFrom)
+            System.arraycopy(bytes, copyFrom, bytes, w, end - copyFrom);
+        return w + end - copyFrom - offset;
+    }
+
+    /**
+     * Unifies the UTF-8 bytes of a buffer from its position to its limit in
+     * place, and sets its limit to the end of the unified bytes.
+     *
+     * @param buffer
+     *            a heap or direct buffer
+     */
+    public static void unify(ByteBuffer buffer)
+    {
+        int i = buffer.position();
+        int end = buffer.limit();
+        if (buffer.hasArray())
+        {
+            int offset = buffer.arrayOffset();
+            buffer.limit(i + unify(buffer.array(), offset + i, end - i));
+            return;
+        }
+        int w = i;
+        int copyFrom = i;
+        while (i < end)
+        {
+            if (i <= end - 8 && (buffer.getLong(i) & NON_ASCII) == 0)
+            {
+                i += 8;
+                continue;
+            }
+            for (int blockEnd = Math.min(i + 8, end); i < blockEnd;)
+            {
+                byte last = buffer.get(i++);
+                if (!LAST[last & 0xFF])
+                    continue;
+                int start = i - length(last);
+                if (start < copyFrom || !isLead(buffer.get(start), buffer.get(start + 1), last))
+                    continue;
+                move(buffer, copyFrom, w, start - copyFrom);
+                w += start - copyFrom;
+                if (last == RLM || last == RLE)
+                {
+                    buffer.put(w++, (byte) ' ');
+                }
+                else
+                {
+                    buffer.put(w++, last == KAF ? (byte) 0xDA : (byte) 0xDB);
+                    buffer.put(w++, last == KAF ? (byte) 0xA9 : (byte) 0x8C);
+                }
+                copyFrom = i;
+            }
+        }
+        move(buffer, copyFrom, w, end - copyFrom);
+        buffer.limit(w + end - copyFrom);
+    }
+
+    /**
+     * Unifies UTF-8 bytes from one buffer into another, the way a
+     * {@link java.nio.charset.CharsetDecoder} decodes: as much of the input
+     * as fits in the output, leaving both positions after what was done. A
+     * char cut at the end of the input is left there for the next call
+     * unless <code>endOfInput</code> is true.
+     *
+     * @param src
+     *            the input, from its position to its limit
+     * @param dst
+     *            the output, from its position, not sharing memory with the
+     *            input; it must have room for two bytes to make progress
+     * @param endOfInput
+     *            true if the input holds the last bytes of the text
+     * @return {@link CoderResult#UNDERFLOW} when all the input is done but a
+     *         cut char, {@link CoderResult#OVERFLOW} when the output is full
+     *         first
+     */
+    public static CoderResult unify(ByteBuffer src, ByteBuffer dst, boolean endOfInput)
+    {
+        if (src.hasArray() && dst.hasArray() && !dst.isReadOnly())
+            return unifyArrays(src, dst, endOfInput);
+        ByteBuffer span = src.duplicate();
+        int i = src.position();
+        int end = src.limit();
+        int copyFrom = i;
+        while (i < end)
+        {
+            if (i <= end - 8 && (src.getLong(i) & NON_ASCII) == 0)
+            {
+                i += 8;
+                continue;
+            }
+            for (int blockEnd = Math.min(i + 8, end); i < blockEnd;)
+            {
+                byte last = src.get(i++);
+                if (!LAST[last & 0xFF])
+                    continue;
+                int start = i - length(last);
+                if (start < copyFrom || !isLead(src.get(start), src.get(start + 1), last))
+                    continue;
+                if (!copy(span, copyFrom, start, last == RLM || last == RLE ? 1 : 2, src, dst))
+                    return CoderResult.OVERFLOW;
+                if (last == RLM || last == RLE)
+                    dst.put((byte) ' ');
+                else
+                    dst.put(last == KAF ? (byte) 0xDA : (byte) 0xDB).put(last == KAF ? (byte) 0xA9 : (byte) 0x8C);
+                copyFrom = i;
+            }
+        }
+        if (!endOfInput)
+            end -= cut(end - 1 >= copyFrom ? src.get(end - 1) : 0, end - 2 >= copyFrom ? src.get(end - 2) : 0);
+        if (!copy(span, copyFrom, end, 0, src, dst))
+            return CoderResult.OVERFLOW;
+        src.position(end);
+        return CoderResult.UNDERFLOW;
+    }
+
+    /**
+     * @return the length the bytes of a buffer from its position to its limit
+     *         have once unified; only the marks change the length
+     */
+    static int unifiedLength(ByteBuffer buffer)
+    {
+        int i = buffer.position();
+        int end = buffer.limit();
+        int length = end - i;
+        while (i < end)
+        {
+            if (i <= end - 8 && (buffer.getLong(i) & NON_ASCII) == 0)
+            {
+                i += 8;
+                continue;
+            }
+            for (int blockEnd = Math.min(i + 8, end); i < blockEnd;)
+            {
+                byte last = buffer.get(i++);
+                // the marks cannot overlap with each other or with kaf and yeh
+                if ((last == RLM || last == RLE) && i - 3 >= buffer.position()
+                        && isLead(buffer.get(i - 3), buffer.get(i - 2), last))
+                    length -= 2;
+            }
+        }
+        return length;
+    }
+
+    private static CoderResult unifyArrays(ByteBuffer src, ByteBuffer dst, boolean endOfInput)
+    {
+        byte[] in = src.array();
+        byte[] out = dst.array();
+        int offset = src.arrayOffset();
+        int i = offset + src.position();
+        int end = offset + src.limit();
+        int w = dst.arrayOffset() + dst.position();
+        int outEnd = dst.arrayOffset() + dst.limit();
+        int copyFrom = i;
+        boolean full = false;
+        while (i < end && !full)
+        {
+            if (i <= end - 8
+                    && (in[i] | in[i + 1] | in[i + 2] | in[i + 3] | in[i + 4] | in[i + 5] | in[i + 6] | in[i + 7]) >= 0)
+            {
+                i += 8;
+                continue;
+            }
+            for (int blockEnd = Math.min(i + 8, end); i < blockEnd;)
+            {
+                byte last = in[i++];
+                if (!LAST[last & 0xFF])
+                    continue;
+                int start = i - length(last);
+                if (start < copyFrom || !isLead(in[start], in[start + 1], last))
+                    continue;
+                if (outEnd - w < start - copyFrom + (last == RLM || last == RLE ? 1 : 2))
+                {
+                    // the bytes before the char are copied below
+                    end = start;
+                    full = true;
+                    break;
+                }
+                System.arraycopy(in, copyFrom, out, w, start - copyFrom);
+                w = put(out, w + start - copyFrom, last);
+                copyFrom = i;
+            }
+        }
+        if (!full && !endOfInput)
+            end -= cut(end - 1 >= copyFrom ? in[end - 1] : 0, end - 2 >= copyFrom ? in[end - 2] : 0);
+        int n = end - copyFrom;
+        if (outEnd - w < n)
+        {
+            full = true;
+            n = outEnd - w;
+        }
+        System.arraycopy(in, copyFrom, out, w, n);
+        src.position(copyFrom + n - offset);
+        dst.position(w + n - dst.arrayOffset());
+        return full ? CoderResult.OVERFLOW : CoderResult.UNDERFLOW;
+    }
+
+    /**
+     * @return the length of the replaced char that ends with the given byte
+     */
+    private static int length(byte last)
+    {
+        return last == RLM || last == RLE ? 3 : 2;
+    }
+
+    /**
+     * @return true if the bytes before the last byte of a replaced char are
+     *         those of the char; for kaf and yeh the second byte is the last
+     */
+    private static boolean isLead(byte b0, byte b1, byte last)
+    {
+        if (last == KAF || last == YEH)
+            return b0 == LEAD_2;
+        return b0 == LEAD_3 && b1 == SECOND_3;
+    }
+
+    /**
+     * @return the number of bytes at the end of the input that start a
+     *         replaced char, given the last two bytes, or 0 for bytes already
+     *         done
+     */
+    private static int cut(byte last, byte beforeLast)
+    {
+        if (last == LEAD_2 || last == LEAD_3)
+            return 1;
+        return beforeLast == LEAD_3 && last == SECOND_3 ? 2 : 0;
+    }
+
+    private static int put(byte[] bytes, int w, byte last)
+    {
+        if (last == KAF)
+        {
+            bytes[w++] = (byte) 0xDA;
+            bytes[w++] = (byte) 0xA9;
+        }
+        else if (last == YEH)
+        {
+            bytes[w++] = (byte) 0xDB;
+            bytes[w++] = (byte) 0x8C;
+        }
+        else
+        {
+            bytes[w++] = ' ';
+        }
+        return w;
+    }
+
+    /**
+     * Moves bytes of a buffer down to a lower or the same index, a word at a
+     * time.
+     */
+    private static void move(ByteBuffer buffer, int from, int to, int length)
+    {
+        if (from == to)
+            return;
+        int i = 0;
+        for (; i <= length - 8; i += 8)
+            buffer.putLong(to + i, buffer.getLong(from + i));
+        for (; i < length; i++)
+            buffer.put(to + i, buffer.get(from + i));
+    }
+
+    /**
+     * Copies input bytes from one index to another to the output if there is
+     * room for them and extra bytes after; otherwise copies what fits and
+     * leaves the input after it.
+     *
+     * @return false if there was not room
+     */
+    private static boolean copy(ByteBuffer span, int from, int to, int extra, ByteBuffer src, ByteBuffer dst)
+    {
+        int room = dst.remaining();
+        boolean fits = room >= to - from + extra;
+        if (!fits)
+            to = Math.min(to, from + room);
+        span.limit(to);
+        span.position(from);
+        dst.put(span);
+        if (!fits)
+            src.position(to);
+        return fits;
+    }
+
+}
@@ -0,0 +1,266 @@
+package com.omidbiz.persianutils;
+
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @author omidp
+ *         <p>
+ *         Raw and daylight saving offsets of a {@link TimeZone} at an instant
+ *         or at a wall time, from a table of the offset transitions of the
+ *         zone so that a lookup is a binary search over a primitive array
+ *         instead of a <code>TimeZone.getOffset</code> call.
+ *         </p>
+ *         <p>
+ *         Tables are built from the tz database rules of <code>java.time</code>
+ *         and shared between all zones with the rules of the system zone of
+ *         the same ID. They hold every transition from {@link #START} up to
+ *         {@link #LIMIT}; instants out of that window, custom zones and zones
+ *         whose raw offset was changed after the lookup was made go to the
+ *         TimeZone itself. The two offsets are
+ *         returned packed in a long, see {@link #rawOffset(long)} and
+ *         {@link #dstOffset(long)}.
+ *         </p>
+ *         <p>
+ *         Wall times are resolved as {@link java.util.GregorianCalendar} does:
+ *         a wall time skipped or repeated by a transition is taken as the
+ *         offset before a skip and the offset after a repeat, that is, as
+ *         standard time at the usual daylight saving changes.
+ *         </p>
+ */
+final class ZoneOffsetTable
+{
+
+    // 1900/01/01 UTC, TimeZone has its own offsets before, not those of the
+    // local mean time of the tz database
+    static final long START = -2208988800000L;
+
+    // 2038/01/01 UTC, the end of the transitions the JDK zones keep as well
+    static final long LIMIT = 2145916800000L;
+
+    // no zone changes its standard offset twice in a week
+    private static final long STANDARD_OFFSET_SAMPLE = 7 * 24 * 60 * 60 * 1000L;
+
+    private static final ConcurrentMap<String, Transitions> TRANSITIONS = new ConcurrentHashMap<String, Transitions>();
+
+    private final TimeZone zone;
+
+    private final int rawOffset;
+
+    /**
+     * null for zones without tz database rules
+     */
+    private final Transitions transitions;
+
+    private ZoneOffsetTable(TimeZone zone, Transitions transitions)
+    {
+        this.zone = zone;
+        this.rawOffset = zone.getRawOffset();
+        this.transitions = transitions;
+    }
+
+    /**
+     * @param zone
+     *            the zone, which the lookup keeps using for the instants out
+     *            of its table
+     */
+    static ZoneOffsetTable of(TimeZone zone)
+    {
+        String id = zone.getID();
+        Transitions transitions = TRANSITIONS.get(id);
+        if (transitions == null)
+        {
+            transitions = Transitions.of(id);
+            if (transitions != null)
+            {
+                Transitions existing = TRANSITIONS.putIfAbsent(id, transitions);
+                if (existing != null)
+                    transitions = existing;
+            }
+        }
+        if (transitions != null && !transitions.zone.hasSameRules(zone))
+            transitions = null;
+        return new ZoneOffsetTable(zone, transitions);
+    }
+
+    static int rawOffset(long offsets)
+    {
+        return (int) (offsets >> 32);
+    }
+
+    static int dstOffset(long offsets)
+    {
+        return (int) offsets;
+    }
+
+    private static long pack(int rawOffset, int dstOffset)
+    {
+        return ((long) rawOffset << 32) | (dstOffset & 0xFFFFFFFFL);
+    }
+
+    private boolean useTable()
+    {
+        return transitions != null && zone.getRawOffset() == rawOffset;
+    }
+
+    /**
+     * @return the raw and daylight saving offsets at the instant, packed
+     */
+    long atUtc(long millis)
+    {
+        if (useTable() && millis >= transitions.utc[0] && millis < LIMIT)
+        {
+            int i = transitions.indexOf(transitions.utc, millis);
+            return pack(transitions.rawOffsets[i], transitions.dstOffsets[i]);
+        }
+        int raw = zone.getRawOffset();
+        return pack(raw, zone.getOffset(millis) - raw);
+    }
+
+    /**
+     * @param millis
+     *            wall time, milliseconds since 1970/01/01 00:00 local time
+     * @return the raw and daylight saving offsets in effect at the wall time,
+     *         packed
+     */
+    long atWall(long millis)
+    {
+        if (useTable() && millis >= transitions.wall[0] && millis - rawOffset < LIMIT)
+        {
+            int i = transitions.indexOf(transitions.wall, millis);
+            return pack(transitions.rawOffsets[i], transitions.dstOffsets[i]);
+        }
+        int raw = zone.getRawOffset();
+        long utc = millis - raw;
+        int dst = zone.getOffset(utc) - raw;
+        // skipped by the start of daylight saving time
+        if (dst > 0 && zone.getOffset(utc - dst) == raw)
+            dst = 0;
+        return pack(raw, dst);
+    }
+
+    /**
+     * The transitions of one tz database zone. Entry i is in effect from
+     * utc[i], which is wall[i] in its own offsets, up to the next entry.
+     */
+    private static final class Transitions
+    {
+
+        final TimeZone zone;
+
+        final long[] utc;
+
+        final long[] wall;
+
+        final int[] rawOffsets;
+
+        final int[] dstOffsets;
+
+        private Transitions(TimeZone zone, List<long[]> entries)
+        {
+            int size = entries.size();
+            this.zone = zone;
+            this.utc = new long[size];
+            this.wall = new long[size];
+            this.rawOffsets = new int[size];
+            this.dstOffsets = new int[size];
+            for (int i = 0; i < size; i++)
+            {
+                long[] entry = entries.get(i);
+                utc[i] = entry[0];
+                wall[i] = entry[0] + entry[1];
+                rawOffsets[i] = (int) entry[2];
+                dstOffsets[i] = (int) (entry[1] - entry[2]);
+            }
+        }
+
+        /**
+         * @return the transitions of the system zone with the ID, or null if
+         *         java.time has no rules for it
+         */
+        static Transitions of(String id)
+        {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            ZoneRules rules;
+            try
+            {
+                rules = zone.toZoneId().getRules();
+            }
+            catch (RuntimeException e)
+            {
+                return null;
+            }
+            // {utc millis, total offset, standard offset}
+            List<long[]> entries = new ArrayList<long[]>();
+            long from = START;
+            for (ZoneOffsetTransition next = rules.nextTransition(Instant.ofEpochMilli(START)); from < LIMIT; next = rules
+                    .nextTransition(next.getInstant()))
+            {
+                long to = next == null ? LIMIT : Math.min(next.getInstant().toEpochMilli(), LIMIT);
+                add(entries, rules, from, to);
+                if (next == null)
+                    break;
+                from = to;
+            }
+            return new Transitions(zone, entries);
+        }
+
+        /**
+         * Adds the entries of [from, to), a span without wall offset
+         * transitions in which the standard offset may still change, such as
+         * from daylight saving time to a standard time of the same offset.
+         * java.time only lists the wall offset transitions, so the standard
+         * offset is sampled and each change searched to the second.
+         */
+        private static void add(List<long[]> entries, ZoneRules rules, long from, long to)
+        {
+            long total = rules.getOffset(Instant.ofEpochMilli(from)).getTotalSeconds() * 1000L;
+            long standard = standardOffset(rules, from);
+            entries.add(new long[] { from, total, standard });
+            long low = from;
+            for (;;)
+            {
+                long high = Math.min(low + STANDARD_OFFSET_SAMPLE, to - 1000);
+                if (high <= low)
+                    return;
+                if (standardOffset(rules, high) != standard)
+                {
+                    while (high - low > 1000)
+                    {
+                        long mid = low + (high - low) / 2000 * 1000;
+                        if (standardOffset(rules, mid) == standard)
+                            low = mid;
+                        else
+                            high = mid;
+                    }
+                    standard = standardOffset(rules, high);
+                    entries.add(new long[] { high, total, standard });
+                }
+                low = high;
+            }
+        }
+
+        private static long standardOffset(ZoneRules rules, long millis)
+        {
+            return rules.getStandardOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        }
+
+        /**
+         * @return the last entry starting at or before the millis
+         */
+        int indexOf(long[] starts, long millis)
+        {
+            int i = Arrays.binarySearch(starts, millis);
+            return i >= 0 ? i : -i - 2;
+        }
+
+    }
+
+}
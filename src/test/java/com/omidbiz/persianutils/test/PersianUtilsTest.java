@@ -1,15 +1,61 @@
 package com.omidbiz.persianutils.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.chrono.ChronoLocalDate;
+import java.time.chrono.Chronology;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
 
 import junit.framework.Assert;
 
 import org.junit.Test;
 
+import com.omidbiz.persianutils.BulkUnifier;
+import com.omidbiz.persianutils.CsvDateTranscoder;
 import com.omidbiz.persianutils.JalaliCalendar;
+import com.omidbiz.persianutils.JalaliCalendarPool;
+import com.omidbiz.persianutils.JalaliChronoLocalDate;
+import com.omidbiz.persianutils.JalaliChronology;
+import com.omidbiz.persianutils.JalaliDate;
+import com.omidbiz.persianutils.JalaliFormatter;
 import com.omidbiz.persianutils.PersianCharacterUnifier;
 import com.omidbiz.persianutils.PersianDateConverter;
+import com.omidbiz.persianutils.PersianNormalizer;
+import com.omidbiz.persianutils.StreamingUnifier;
+import com.omidbiz.persianutils.UnifyingReader;
+import com.omidbiz.persianutils.UnifyingWriter;
+import com.omidbiz.persianutils.Utf8Unifier;
 
 /**
  * @author omidp
@@ -32,6 +78,63 @@ public class PersianUtilsTest {
 		Assert.assertEquals("1394/05/01", pc.GregorianToSolar(gdate));
 		Assert.assertEquals("1394/05/01 14:13", pc.GregorianToSolar(gdateTime));
 		System.out.println(pc.GregorianToSolar(new Date(), true));
+		//
+		Assert.assertEquals(13940501, pc.getSolarDate(2015, 7, 23));
+		Assert.assertEquals(1394, pc.getSolarYear(2015, 7, 23));
+		Assert.assertEquals(5, pc.getSolarMonth(2015, 7, 23));
+		Assert.assertEquals(1, pc.getSolarDay(2015, 7, 23));
+		Assert.assertEquals(2015, pc.getGregorianYear(1394, 5, 1));
+		Assert.assertEquals(20150723, pc.getGregorianDate(1394, 5, 1));
+	}
+
+	@Test
+	public void testDateConverterLayouts() {
+		PersianDateConverter pc = PersianDateConverter.getInstance();
+		Assert.assertEquals("2015/07/23", pc.SolarToGregorian("1394/05/01"));
+		Assert.assertEquals("2015-07-23", pc.SolarToGregorian("1394-05-01"));
+		Assert.assertEquals("1394-05-01", pc.GregorianToSolar("2015-07-23"));
+		// the first delimiter is kept
+		Assert.assertEquals("2015/07/23", pc.SolarToGregorian("1394/05-01"));
+		Assert.assertEquals("2015-07-23", pc.SolarToGregorian("1394-05/01"));
+		Assert.assertEquals("2015/07/23 15:14", pc.SolarToGregorian("1394/05/01\t15:14"));
+		// seconds follow the minutes without a colon, and 0 and 10 are dropped
+		Assert.assertEquals("2015/07/23 15:1405", pc.SolarToGregorian("1394/05/01 15:14:05"));
+		Assert.assertEquals("2015/07/23 15:14", pc.SolarToGregorian("1394/05/01 15:14:10"));
+		Assert.assertEquals("1394/05/01 14:1345", pc.GregorianToSolar("2015/07/23 14:13:45"));
+		Assert.assertEquals("1394/05/01 14:13", pc.GregorianToSolar("2015/07/23 14:13:00"));
+		Assert.assertEquals("2015/07/23 15:1445", pc.SolarToGregorian("1394/05/01 15:14:45.1"));
+		Assert.assertEquals("2015/07/23 15:1445", pc.SolarToGregorian("1394/05/01 15:14:45.123"));
+		Assert.assertEquals("2015/07/23 15:1445", pc.SolarToGregorian("1394/05/01 15:14:45.1.2"));
+		Calendar cal = Calendar.getInstance();
+		cal.setTime(pc.SolarToGregorianAsDate("1394/05/01 15:14:45.123"));
+		Assert.assertEquals(2015, cal.get(Calendar.YEAR));
+		Assert.assertEquals(Calendar.JULY, cal.get(Calendar.MONTH));
+		Assert.assertEquals(23, cal.get(Calendar.DATE));
+		Assert.assertEquals(15, cal.get(Calendar.HOUR_OF_DAY));
+		Assert.assertEquals(14, cal.get(Calendar.MINUTE));
+		Assert.assertEquals(45, cal.get(Calendar.SECOND));
+		Assert.assertEquals("", pc.SolarToGregorian(""));
+		Assert.assertEquals("", pc.SolarToGregorian(null));
+		Assert.assertEquals("", pc.GregorianToSolar(""));
+		Assert.assertEquals("", pc.GregorianToSolar((String) null));
+		Assert.assertNull(pc.SolarToGregorianAsDate(""));
+		Assert.assertNull(pc.SolarToGregorianAsDate(null));
+		String[] invalid = { "1394.05.01", "1394 05 01", "1394/5/1", "13940/05/01", "1394/05/01T15:14", "1394/05/01x",
+				"1394/05/01 ", " 1394/05/01", "1394/05/01 15", "1394/05/01 15:1", "1394/05/01 15:14x",
+				"1394/05/01 15:14:", "1394/05/01 15:14:4", "1394/05/01 15:14:45.", "1394/05/01 15:14:45,1",
+				"1394/05/01 15:14:45.a", "1394/05/01 15:14:45.12x", "\u06F1\u06F3\u06F9\u06F4/\u06F0\u06F5/\u06F0\u06F1" };
+		for (String date : invalid) {
+			try {
+				pc.SolarToGregorian(date);
+				Assert.fail(date);
+			} catch (IllegalArgumentException e) {
+			}
+			try {
+				pc.GregorianToSolar(date);
+				Assert.fail(date);
+			} catch (IllegalArgumentException e) {
+			}
+		}
 	}
 
 	@Test
@@ -44,6 +147,116 @@ public class PersianUtilsTest {
 
 	}
 
+	@Test
+	public void testUnifierCopyOnChange() {
+		PersianCharacterUnifier pc = PersianCharacterUnifier.getInstance();
+		String clean = "کتاب یک file.txt";
+		Assert.assertSame(clean, pc.unify(clean));
+		Assert.assertSame("", pc.unify(""));
+		Assert.assertNull(pc.unify(null));
+		Assert.assertEquals("کتاب یک ", pc.unify("كتاب‏يك‫"));
+	}
+
+	@Test
+	public void testNormalizer() {
+		PersianNormalizer search = PersianNormalizer.search();
+		// Arabic letters, hamza forms, digits, kashida, harakat and spaces
+		Assert.assertEquals("کتابخانه ی ملی 123 اسلامی ه\u200Cها",
+				search.normalize("كتابخانة\u200C   ي ملي ١٢۳ إسلاميـَ ۀ\u200C\u200Cها"));
+		Assert.assertEquals("ab cd", search.normalize("ab\u200F\u200Ccd"));
+		String clean = "کتاب ۱ ab";
+		Assert.assertSame(clean, PersianNormalizer.builder().persianLetters().build().normalize(clean));
+		// Latin-1 is below every Persian rule
+		String latin = "caf\u00E9 file_1.txt \u00D7 2";
+		Assert.assertSame(latin, PersianNormalizer.unifier().normalize(latin));
+		Assert.assertSame(latin, search.normalize(latin));
+		Assert.assertEquals("cbfe", PersianNormalizer.builder().replace('a', 'b').build().normalize("cafe"));
+		PersianNormalizer custom = PersianNormalizer.builder().replace('a', 'b').delete('c').digits('۰').build();
+		Assert.assertEquals('b', custom.map('a'));
+		Assert.assertTrue(custom.isDeleted('c'));
+		char[] chars = "xabc12c".toCharArray();
+		int length = custom.normalize(chars, 1, 6);
+		Assert.assertEquals("bb۱۲", new String(chars, 1, length));
+		Assert.assertEquals('x', chars[0]);
+		try {
+			PersianNormalizer.builder().delete('\uFFFF');
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+		// the unifier rules are those of PersianCharacterUnifier
+		PersianNormalizer unifier = PersianNormalizer.unifier();
+		for (char ch = 0; ch < Character.MAX_VALUE; ch++) {
+			char expected = ch == 'ك' ? 'ک' : ch == 'ي' ? 'ی' : ch == '\u200F' || ch == '\u202B' ? ' ' : ch;
+			Assert.assertEquals(expected, unifier.map(ch));
+			Assert.assertFalse(unifier.isDeleted(ch));
+		}
+	}
+
+	@Test
+	public void testUnifyingStreams() throws IOException {
+		// longer than the buffers, with a non-joiner and a space across reads
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++)
+			sb.append("كتاب\u200C ـي ");
+		String text = sb.toString();
+		PersianNormalizer search = PersianNormalizer.search();
+		String expected = search.normalize(text);
+		Reader reader = new UnifyingReader(new StringReader(text), search);
+		StringBuilder read = new StringBuilder();
+		char[] chars = new char[333];
+		for (int n; (n = reader.read(chars)) != -1;)
+			read.append(chars, 0, n);
+		reader.close();
+		Assert.assertEquals(expected, read.toString());
+		StringWriter written = new StringWriter();
+		Writer writer = new UnifyingWriter(written, search);
+		for (int i = 0; i < text.length(); i += 7)
+			writer.write(text, i, Math.min(7, text.length() - i));
+		writer.flush();
+		Assert.assertEquals(expected.substring(0, expected.length() - 1), written.toString());
+		writer.close();
+		Assert.assertEquals(expected, written.toString());
+		// the unifier rules by default, one char of output at a time
+		StreamingUnifier unifier = new StreamingUnifier();
+		CharBuffer in = CharBuffer.wrap("كي\u200F");
+		CharBuffer out = CharBuffer.allocate(1);
+		StringBuilder unified = new StringBuilder();
+		while (unifier.unify(in, out, true).isOverflow()) {
+			out.flip();
+			unified.append(out);
+			out.clear();
+		}
+		out.flip();
+		unified.append(out);
+		Assert.assertEquals("کی ", unified.toString());
+	}
+
+	@Test
+	public void testUtf8Unifier() {
+		String text = "file كتاب\u200Fيك\u202B 1394 ";
+		byte[] expected = PersianCharacterUnifier.getInstance().unify(text).getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = ("xx" + text).getBytes(StandardCharsets.UTF_8);
+		int length = Utf8Unifier.unify(bytes, 2, bytes.length - 2);
+		// two bytes shorter for each mark
+		Assert.assertEquals(bytes.length - 2 - 4, length);
+		Assert.assertTrue(Arrays.equals(expected, Arrays.copyOfRange(bytes, 2, 2 + length)));
+		ByteBuffer direct = ByteBuffer.allocateDirect(64);
+		direct.put(text.getBytes(StandardCharsets.UTF_8)).flip();
+		Utf8Unifier.unify(direct);
+		byte[] unified = new byte[direct.remaining()];
+		direct.get(unified);
+		Assert.assertTrue(Arrays.equals(expected, unified));
+		// a char cut between two inputs is left for the next one
+		byte[] source = text.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer out = ByteBuffer.allocate(64);
+		ByteBuffer in = ByteBuffer.wrap(source, 0, 6);
+		Assert.assertTrue(Utf8Unifier.unify(in, out, false).isUnderflow());
+		Assert.assertEquals(5, in.position());
+		in = ByteBuffer.wrap(source, 5, source.length - 5);
+		Assert.assertTrue(Utf8Unifier.unify(in, out, true).isUnderflow());
+		Assert.assertTrue(Arrays.equals(expected, Arrays.copyOf(out.array(), out.position())));
+	}
+
 	@Test
 	public void testJalaliCalendar() {
 		Date d = new Date();
@@ -57,14 +270,699 @@ public class PersianUtilsTest {
 		Assert.assertFalse(d == jc.getTime());
 	}
 
+	@Test
+	public void testJalaliCalendarStamps() throws IOException, ClassNotFoundException {
+		JalaliCalendar jc = new JalaliCalendar(TimeZone.getTimeZone("UTC"));
+		jc.setTimeInMillis(1437651240000L);
+		Assert.assertEquals(1394, jc.get(Calendar.YEAR));
+		Assert.assertTrue(jc.isSet(Calendar.DAY_OF_WEEK));
+		// the most recently set field wins
+		jc.set(Calendar.DAY_OF_YEAR, 1);
+		jc.set(Calendar.DAY_OF_MONTH, 10);
+		Assert.assertEquals(4, jc.get(Calendar.MONTH));
+		Assert.assertEquals(10, jc.get(Calendar.DAY_OF_MONTH));
+		jc.set(Calendar.DAY_OF_YEAR, 1);
+		Assert.assertEquals(0, jc.get(Calendar.MONTH));
+		JalaliCalendar copy = (JalaliCalendar) jc.clone();
+		copy.set(Calendar.DAY_OF_MONTH, 5);
+		jc.set(Calendar.DAY_OF_YEAR, 32);
+		Assert.assertEquals(5, copy.get(Calendar.DAY_OF_MONTH));
+		Assert.assertEquals(1, jc.get(Calendar.MONTH));
+		jc.clear();
+		Assert.assertFalse(jc.isSet(Calendar.YEAR));
+		jc.set(1394, 4, 1);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(jc);
+		out.close();
+		JalaliCalendar read = (JalaliCalendar) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+				.readObject();
+		Assert.assertEquals(jc.getTimeInMillis(), read.getTimeInMillis());
+		read.set(Calendar.DAY_OF_MONTH, 2);
+		Assert.assertEquals(2, read.get(Calendar.DAY_OF_MONTH));
+	}
+
+	@Test
+	public void testJalaliCalendarSerialization() throws IOException, ClassNotFoundException {
+		JalaliCalendar jc = new JalaliCalendar(TimeZone.getTimeZone("Asia/Tehran"));
+		jc.setTimeInMillis(1437651240000L);
+		jc.setFirstDayOfWeek(Calendar.SATURDAY);
+		jc.setMinimalDaysInFirstWeek(1);
+		jc.setLenient(false);
+		byte[] compact = serialize(jc);
+		Assert.assertTrue(compact.length < 100);
+		Assert.assertEquals(jc, deserialize(compact));
+		// written by the default Calendar form of earlier versions
+		InputStream in = getClass().getResourceAsStream("JalaliCalendar-default-form.ser");
+		JalaliCalendar old = (JalaliCalendar) new ObjectInputStream(in).readObject();
+		in.close();
+		Assert.assertEquals(jc, old);
+		Assert.assertEquals(1394, old.get(Calendar.YEAR));
+		old.set(Calendar.DAY_OF_MONTH, 2);
+		Assert.assertEquals(2, old.get(Calendar.DAY_OF_MONTH));
+		// a zone with rules of its own keeps them
+		SimpleTimeZone zone = new SimpleTimeZone(12600000, "Asia/Tehran");
+		zone.setStartRule(Calendar.MARCH, 22, 0);
+		zone.setEndRule(Calendar.SEPTEMBER, 22, 0);
+		jc.setTimeZone(zone);
+		JalaliCalendar read = deserialize(serialize(jc));
+		Assert.assertEquals(zone, read.getTimeZone());
+		Assert.assertEquals(jc.get(Calendar.HOUR_OF_DAY), read.get(Calendar.HOUR_OF_DAY));
+		// fields that do not resolve to a time are written as they are
+		jc.set(Calendar.MONTH, 20);
+		read = deserialize(serialize(jc));
+		jc.setLenient(true);
+		read.setLenient(true);
+		Assert.assertEquals(jc.getTimeInMillis(), read.getTimeInMillis());
+	}
+
+	private static byte[] serialize(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static JalaliCalendar deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		return (JalaliCalendar) new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+	}
+
+	@Test
+	public void testJalaliCalendarDaylightSaving() {
+		TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+		JalaliCalendar jc = new JalaliCalendar(tehran);
+		GregorianCalendar gc = new GregorianCalendar(tehran);
+		// 1394/04/01 12:00 is 2015/06/22 12:00 in daylight saving time
+		jc.clear();
+		jc.set(1394, 3, 1, 12, 0);
+		gc.clear();
+		gc.set(2015, Calendar.JUNE, 22, 12, 0);
+		Assert.assertEquals(gc.getTimeInMillis(), jc.getTimeInMillis());
+		Assert.assertEquals(12600000, jc.get(Calendar.ZONE_OFFSET));
+		Assert.assertEquals(3600000, jc.get(Calendar.DST_OFFSET));
+		// 1387/01/02 00:30 is skipped, 2008/03/21 00:00 is 01:00
+		jc.clear();
+		jc.set(1387, 0, 2, 0, 30);
+		Assert.assertEquals(1, jc.get(Calendar.HOUR_OF_DAY));
+		// no daylight saving time since 1402
+		jc.clear();
+		jc.set(1402, 3, 1, 12, 0);
+		Assert.assertEquals(0, jc.get(Calendar.DST_OFFSET));
+		// 1357/10/07 06:58 +04:00 plus a week is in +03:30, at the same wall time
+		jc.setTimeInMillis(283661883662L);
+		gc.setTimeInMillis(283661883662L);
+		Assert.assertEquals(14400000, jc.get(Calendar.ZONE_OFFSET));
+		jc.add(Calendar.DATE, 7);
+		gc.add(Calendar.DATE, 7);
+		Assert.assertEquals(gc.getTimeInMillis(), jc.getTimeInMillis());
+		Assert.assertEquals(14, jc.get(Calendar.DAY_OF_MONTH));
+		Assert.assertEquals(6, jc.get(Calendar.HOUR_OF_DAY));
+		Assert.assertEquals(58, jc.get(Calendar.MINUTE));
+		// 1396/12/24 00:43 plus a week is skipped, 1397/01/02 00:43 is 01:43
+		jc.setTimeInMillis(1521061986934L);
+		gc.setTimeInMillis(1521061986934L);
+		jc.add(Calendar.WEEK_OF_YEAR, 1);
+		gc.add(Calendar.WEEK_OF_YEAR, 1);
+		Assert.assertEquals(gc.getTimeInMillis(), jc.getTimeInMillis());
+		Assert.assertEquals(1, jc.get(Calendar.HOUR_OF_DAY));
+		for (long t = 1199145600000L; t < 1672531200000L; t += 7 * 60 * 60 * 1000L + 60 * 1000L) {
+			gc.setTimeInMillis(t);
+			jc.setTimeInMillis(t);
+			Assert.assertEquals(gc.get(Calendar.HOUR_OF_DAY), jc.get(Calendar.HOUR_OF_DAY));
+			Assert.assertEquals(gc.get(Calendar.DST_OFFSET), jc.get(Calendar.DST_OFFSET));
+			int year = jc.get(Calendar.YEAR);
+			int month = jc.get(Calendar.MONTH);
+			int day = jc.get(Calendar.DAY_OF_MONTH);
+			int hour = jc.get(Calendar.HOUR_OF_DAY);
+			int minute = jc.get(Calendar.MINUTE);
+			// the repeated hour at the end of daylight saving time is taken
+			// as standard time by both
+			gc.set(gc.get(Calendar.YEAR), gc.get(Calendar.MONTH), gc.get(Calendar.DAY_OF_MONTH), hour, minute, 0);
+			gc.set(Calendar.MILLISECOND, 0);
+			jc.clear();
+			jc.set(year, month, day, hour, minute);
+			Assert.assertEquals(gc.getTimeInMillis(), jc.getTimeInMillis());
+		}
+	}
+
+	@Test
+	public void testJalaliCalendarActualMaximum() {
+		JalaliCalendar jc = new JalaliCalendar(TimeZone.getTimeZone("UTC"));
+		jc.setFirstDayOfWeek(Calendar.SATURDAY);
+		jc.setMinimalDaysInFirstWeek(1);
+		// Thursday 1394/05/01
+		jc.setTimeInMillis(1437651240000L);
+		Assert.assertEquals(Calendar.THURSDAY, jc.get(Calendar.DAY_OF_WEEK));
+		Assert.assertEquals(31, jc.getActualMaximum(Calendar.DAY_OF_MONTH));
+		Assert.assertEquals(365, jc.getActualMaximum(Calendar.DAY_OF_YEAR));
+		// 1394/12/29 is a Saturday in the first week of 1395
+		Assert.assertEquals(52, jc.getActualMaximum(Calendar.WEEK_OF_YEAR));
+		Assert.assertEquals(6, jc.getActualMaximum(Calendar.WEEK_OF_MONTH));
+		Assert.assertEquals(5, jc.getActualMaximum(Calendar.DAY_OF_WEEK_IN_MONTH));
+		int[] fields = { Calendar.YEAR, Calendar.DAY_OF_MONTH, Calendar.WEEK_OF_YEAR, Calendar.HOUR };
+		int[] maximums = new int[fields.length];
+		jc.getActualMaximums(fields, maximums);
+		for (int i = 0; i < fields.length; i++)
+			Assert.assertEquals(jc.getActualMaximum(fields[i]), maximums[i]);
+		// the year before the last millisecond, which is before Mordad
+		JalaliCalendar last = new JalaliCalendar(TimeZone.getTimeZone("UTC"));
+		last.setTimeInMillis(Long.MAX_VALUE);
+		Assert.assertTrue(last.get(Calendar.MONTH) < 4);
+		Assert.assertEquals(last.get(Calendar.YEAR) - 1, maximums[0]);
+		jc.set(Calendar.YEAR, maximums[0]);
+		Assert.assertEquals(maximums[0], jc.get(Calendar.YEAR));
+		// the week fields resolve to days before the first day of the week too
+		jc.set(1394, 4, 1);
+		jc.set(Calendar.DAY_OF_WEEK, Calendar.FRIDAY);
+		jc.set(Calendar.DAY_OF_WEEK_IN_MONTH, 5);
+		Assert.assertEquals(30, jc.get(Calendar.DAY_OF_MONTH));
+		jc.set(Calendar.DAY_OF_WEEK, Calendar.FRIDAY);
+		jc.set(Calendar.WEEK_OF_MONTH, 2);
+		Assert.assertEquals(9, jc.get(Calendar.DAY_OF_MONTH));
+	}
+
+	@Test
+	public void testJalaliCalendarSameDayFastPath() {
+		TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+		JalaliCalendar fast = new JalaliCalendar(tehran);
+		JalaliCalendar jc = new JalaliCalendar(tehran);
+		fast.setSameDayFastPath(true);
+		Assert.assertTrue(fast.isSameDayFastPath());
+		// every 50 minutes from 1393/12/20 to past 1394/01/10
+		for (long t = 1425933000000L; t < 1427700000000L; t += 50 * 60 * 1000L) {
+			if (t > 1427000000000L)
+				fast.setFirstDayOfWeek(Calendar.MONDAY);
+			fast.setTimeInMillis(t);
+			jc.setFirstDayOfWeek(fast.getFirstDayOfWeek());
+			jc.setTimeInMillis(t);
+			for (int field = 0; field < Calendar.FIELD_COUNT; field++)
+				Assert.assertEquals(jc.get(field), fast.get(field));
+		}
+	}
+
+	@Test
+	public void testJalaliCalendarAllocationFree() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+			return;
+		JalaliCalendar jc = new JalaliCalendar(TimeZone.getTimeZone("Asia/Tehran"));
+		// years 715 to 1979, inside and outside of the year table and the
+		// zone transitions
+		long[] instants = new long[1024];
+		for (int i = 0; i < instants.length; i++)
+			instants[i] = -20000000000000L + i * 39000000000L + i * 3600000L;
+		int sum = 0;
+		for (int i = 0; i < instants.length; i++) {
+			jc.setTimeInMillis(instants[i]);
+			sum += jc.get(Calendar.YEAR) + jc.get(Calendar.WEEK_OF_YEAR);
+		}
+		long thread = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < instants.length; i++) {
+			jc.setTimeInMillis(instants[i]);
+			sum += jc.get(Calendar.YEAR) + jc.get(Calendar.WEEK_OF_YEAR);
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+		Assert.assertTrue(sum > 0);
+		Assert.assertEquals(0, allocated);
+	}
+
+	@Test
+	public void testJalaliCalendarWeekOfYear() {
+		JalaliCalendar jc = new JalaliCalendar(TimeZone.getTimeZone("UTC"));
+		JalaliCalendar week = new JalaliCalendar(TimeZone.getTimeZone("UTC"));
+		// midnights from about 2 BH to 21 AH and from 1380 to 1402
+		long[][] ranges = { { -42600038400000L, -41900000000000L }, { 973987200000L, 1700000000000L } };
+		for (int firstDayOfWeek = Calendar.SUNDAY; firstDayOfWeek <= Calendar.SATURDAY; firstDayOfWeek++) {
+			for (int minimalDays = 1; minimalDays <= 7; minimalDays++) {
+				jc.setFirstDayOfWeek(firstDayOfWeek);
+				jc.setMinimalDaysInFirstWeek(minimalDays);
+				week.setFirstDayOfWeek(firstDayOfWeek);
+				week.setMinimalDaysInFirstWeek(minimalDays);
+				for (long[] range : ranges) {
+					for (long t = range[0]; t < range[1]; t += 5 * 24 * 60 * 60 * 1000L) {
+						jc.setTimeInMillis(t);
+						int woy = jc.get(Calendar.WEEK_OF_YEAR);
+						// the year the week belongs to
+						int year = jc.get(Calendar.ERA) == JalaliCalendar.AH ? jc.get(Calendar.YEAR)
+								: 1 - jc.get(Calendar.YEAR);
+						if (jc.get(Calendar.MONTH) == JalaliCalendar.ESFAND && woy == 1)
+							year++;
+						else if (jc.get(Calendar.MONTH) == JalaliCalendar.FARVARDIN && woy > 50)
+							year--;
+						else
+							Assert.assertTrue(woy <= jc.getActualMaximum(Calendar.WEEK_OF_YEAR));
+						// the week of year and the day of week give back the day
+						week.clear();
+						week.set(Calendar.ERA, year >= 1 ? JalaliCalendar.AH : JalaliCalendar.BH);
+						week.set(Calendar.YEAR, year >= 1 ? year : 1 - year);
+						week.set(Calendar.WEEK_OF_YEAR, woy);
+						week.set(Calendar.DAY_OF_WEEK, jc.get(Calendar.DAY_OF_WEEK));
+						Assert.assertEquals(t, week.getTimeInMillis());
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testJalaliCalendarTimesToFields() {
+		TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+		int[] fields = { Calendar.YEAR, Calendar.MONTH, Calendar.DAY_OF_MONTH, Calendar.DAY_OF_WEEK,
+				Calendar.WEEK_OF_YEAR, Calendar.HOUR_OF_DAY, Calendar.DST_OFFSET };
+		// every 7 hours from 1393/12/20 to 1394/02/01, over the start of
+		// daylight saving time and the new year
+		long[] millis = new long[200];
+		for (int i = 0; i < millis.length; i++)
+			millis[i] = 1425933000000L + i * 7 * 60 * 60 * 1000L;
+		int[][] columns = new int[fields.length][millis.length + 1];
+		JalaliCalendar.timesToFields(millis, 0, millis.length, tehran, Calendar.MONDAY, 4, fields, columns, 1);
+		JalaliCalendar jc = new JalaliCalendar(tehran);
+		jc.setFirstDayOfWeek(Calendar.MONDAY);
+		jc.setMinimalDaysInFirstWeek(4);
+		for (int i = 0; i < millis.length; i++) {
+			jc.setTimeInMillis(millis[i]);
+			for (int k = 0; k < fields.length; k++)
+				Assert.assertEquals(jc.get(fields[k]), columns[k][i + 1]);
+		}
+		try {
+			JalaliCalendar.timesToFields(millis, 0, millis.length, tehran, Calendar.MONDAY, 4,
+					new int[] { Calendar.FIELD_COUNT }, columns, 0);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			JalaliCalendar.timesToFields(millis, 0, millis.length, tehran, Calendar.MONDAY, 4, fields, columns, 2);
+			Assert.fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	@Test
+	public void testJalaliCalendarAddRoll() {
+		TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+		JalaliCalendar jc = new JalaliCalendar(tehran);
+		JalaliCalendar expected = new JalaliCalendar(tehran);
+		// 1393/12/20 00:30 a day at a time over the new year and the start of
+		// daylight saving time, which skips 00:00 to 01:00 of 1394/01/02
+		jc.set(1393, 11, 20, 0, 30);
+		for (int i = 0; i < 60; i++) {
+			jc.add(i % 2 == 0 ? Calendar.DATE : Calendar.DAY_OF_YEAR, 1);
+			expected.setTimeInMillis(jc.getTimeInMillis());
+			for (int field = 0; field < Calendar.FIELD_COUNT; field++)
+				Assert.assertEquals(expected.get(field), jc.get(field));
+		}
+		jc.set(1393, 11, 10, 12, 30);
+		jc.roll(Calendar.DAY_OF_MONTH, 20);
+		Assert.assertEquals(1, jc.get(Calendar.DAY_OF_MONTH));
+		jc.roll(Calendar.DAY_OF_MONTH, -2);
+		Assert.assertEquals(28, jc.get(Calendar.DAY_OF_MONTH));
+		jc.add(Calendar.DAY_OF_MONTH, 3);
+		Assert.assertEquals(1394, jc.get(Calendar.YEAR));
+		Assert.assertEquals(2, jc.get(Calendar.DAY_OF_MONTH));
+		Assert.assertEquals(12, jc.get(Calendar.HOUR_OF_DAY));
+		jc.set(1394, 5, 31, 0, 30);
+		jc.add(Calendar.MONTH, 6);
+		Assert.assertEquals(11, jc.get(Calendar.MONTH));
+		Assert.assertEquals(29, jc.get(Calendar.DAY_OF_MONTH));
+		// months are added to the year before the hijra too
+		jc.set(Calendar.ERA, JalaliCalendar.BH);
+		jc.set(2, 11, 10);
+		jc.add(Calendar.MONTH, 1);
+		Assert.assertEquals(JalaliCalendar.BH, jc.get(Calendar.ERA));
+		Assert.assertEquals(1, jc.get(Calendar.YEAR));
+		Assert.assertEquals(0, jc.get(Calendar.MONTH));
+	}
+
+	@Test
+	public void testJalaliCalendarPool() {
+		TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+		TimeZone utc = TimeZone.getTimeZone("UTC");
+		JalaliCalendarPool pool = new JalaliCalendarPool(Locale.US);
+		JalaliCalendar jc = pool.acquire(tehran, 1437651240000L);
+		Assert.assertEquals(1394, jc.get(Calendar.YEAR));
+		jc.setLenient(false);
+		jc.setFirstDayOfWeek(Calendar.SATURDAY);
+		jc.setSameDayFastPath(true);
+		// nested use gets a calendar of its own
+		JalaliCalendar nested = pool.acquire(utc);
+		Assert.assertNotSame(jc, nested);
+		pool.release(nested);
+		pool.release(jc);
+		JalaliCalendar again = pool.acquire(utc);
+		Assert.assertSame(jc, again);
+		Assert.assertEquals(utc, again.getTimeZone());
+		Assert.assertTrue(again.isLenient());
+		Assert.assertEquals(Calendar.SUNDAY, again.getFirstDayOfWeek());
+		Assert.assertFalse(again.isSameDayFastPath());
+		Assert.assertFalse(again.isSet(Calendar.YEAR));
+		again.set(1394, 4, 1);
+		Assert.assertEquals(new JalaliCalendar(1394, 4, 1).get(Calendar.DAY_OF_YEAR), again.get(Calendar.DAY_OF_YEAR));
+		pool.release(again);
+		Assert.assertEquals(1, pool.hits());
+		Assert.assertEquals(2, pool.misses());
+	}
+
+	@Test
+	public void testYearTableBoundaries() {
+		// every day across both edges of the year table window must round trip
+		PersianDateConverter pc = PersianDateConverter.getInstance();
+		JalaliCalendar jc = new JalaliCalendar(TimeZone.getTimeZone("UTC"));
+		for (int year = 1195; year <= 1605; year++) {
+			if (year == 1205)
+				year = 1595;
+			for (int month = 1; month <= 12; month++) {
+				for (int day = 1; day <= 29; day++) {
+					String solar = String.format("%d/%02d/%02d", year, month, day);
+					Assert.assertEquals(solar, pc.GregorianToSolar(pc.SolarToGregorian(solar)));
+					jc.clear();
+					jc.set(year, month - 1, day);
+					jc.setTimeInMillis(jc.getTimeInMillis());
+					Assert.assertEquals(year, jc.get(Calendar.YEAR));
+					Assert.assertEquals(month - 1, jc.get(Calendar.MONTH));
+					Assert.assertEquals(day, jc.get(Calendar.DATE));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testBulkConversion() {
+		PersianDateConverter pc = PersianDateConverter.getInstance();
+		TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+		int[] days = new int[1000];
+		long[] millis = new long[days.length];
+		for (int i = 0; i < days.length; i++) {
+			days[i] = 16000 + i * 7;
+			millis[i] = days[i] * 86400000L + 12 * 3600000L;
+		}
+		int[] solar = new int[days.length + 2];
+		pc.epochDaysToSolar(days, 0, solar, 2, days.length);
+		Assert.assertEquals(13940501, PersianDateConverter.packDate(1394, 5, 1));
+		SimpleDateFormat utc = new SimpleDateFormat("yyyy/MM/dd");
+		utc.setTimeZone(TimeZone.getTimeZone("UTC"));
+		for (int i = 0; i < days.length; i++) {
+			String gregorian = utc.format(new Date(millis[i]));
+			int s = solar[i + 2];
+			Assert.assertEquals(pc.GregorianToSolar(gregorian),
+					String.format("%d/%02d/%02d", PersianDateConverter.packedYear(s), PersianDateConverter.packedMonth(s),
+							PersianDateConverter.packedDay(s)));
+		}
+		int[] fromMillis = new int[days.length];
+		pc.epochMillisToSolar(millis, 0, fromMillis, 0, days.length, TimeZone.getTimeZone("UTC"));
+		int[] back = new int[days.length];
+		pc.solarToEpochDays(fromMillis, 0, back, 0, days.length);
+		Assert.assertTrue(Arrays.equals(days, back));
+		long[] midnights = new long[days.length];
+		pc.solarToEpochMillis(fromMillis, 0, midnights, 0, days.length, tehran);
+		int[] again = new int[days.length];
+		pc.epochMillisToSolar(midnights, 0, again, 0, days.length, tehran);
+		Assert.assertTrue(Arrays.equals(fromMillis, again));
+	}
+
+	@Test
+	public void testEpochDayKernel() {
+		PersianDateConverter pc = PersianDateConverter.getInstance();
+		// about 3500 BH to 6900 AH, across both cycle bases, 475 AP and 1 AD
+		int[] days = new int[1333334];
+		for (int i = 0; i < days.length; i++)
+			days[i] = -2000000 + i * 3;
+		int[] solar = new int[days.length];
+		pc.epochDaysToSolar(days, 0, solar, 0, days.length);
+		int[] back = new int[days.length];
+		pc.solarToEpochDays(solar, 0, back, 0, days.length);
+		Assert.assertTrue(Arrays.equals(days, back));
+		for (int i = 0; i < days.length; i += 7) {
+			int s = solar[i];
+			int gregorian = pc.getGregorianDate(PersianDateConverter.packedYear(s), PersianDateConverter.packedMonth(s),
+					PersianDateConverter.packedDay(s));
+			LocalDate expected = LocalDate.ofEpochDay(days[i]);
+			Assert.assertEquals(PersianDateConverter.packDate(expected.getYear(), expected.getMonthValue(),
+					expected.getDayOfMonth()), gregorian);
+			Assert.assertEquals(s, pc.getSolarDate(PersianDateConverter.packedYear(gregorian),
+					PersianDateConverter.packedMonth(gregorian), PersianDateConverter.packedDay(gregorian)));
+		}
+		// the day before 475/01/01 is the last day of 474, a leap year
+		int[] edge = { PersianDateConverter.packDate(475, 1, 1), PersianDateConverter.packDate(-1, 1, 1) };
+		int[] edgeDays = new int[edge.length];
+		pc.solarToEpochDays(edge, 0, edgeDays, 0, edge.length);
+		edgeDays[0]--;
+		pc.epochDaysToSolar(edgeDays, 0, edge, 0, edge.length);
+		Assert.assertEquals(PersianDateConverter.packDate(474, 12, 30), edge[0]);
+		Assert.assertEquals(PersianDateConverter.packDate(-1, 1, 1), edge[1]);
+	}
+
+	@Test
+	public void testJalaliDate() {
+		JalaliDate date = JalaliDate.of(1394, 5, 1);
+		Assert.assertEquals("1394/05/01", date.toString());
+		Assert.assertEquals(date, JalaliDate.ofEpochDay(date.toEpochDay()));
+		Assert.assertEquals(JalaliDate.of(1394, 5, 2), date.plusDays(1));
+		Assert.assertEquals(JalaliDate.of(1394, 7, 30), JalaliDate.of(1394, 6, 31).plusMonths(1));
+		Assert.assertEquals(JalaliDate.of(1393, 12, 29), JalaliDate.of(1394, 1, 29).plusMonths(-1));
+		Assert.assertEquals(JalaliDate.of(1395, 12, 30), JalaliDate.of(1395, 11, 30).plusMonths(1));
+		Assert.assertEquals(29, JalaliDate.of(1394, 12, 1).lengthOfMonth());
+		Assert.assertTrue(JalaliDate.of(1395, 1, 1).isLeapYear());
+		Assert.assertTrue(date.compareTo(date.plusDays(1)) < 0);
+		JalaliCalendar jc = new JalaliCalendar(TimeZone.getTimeZone("UTC"));
+		for (long epochDay = -60000; epochDay < 60000; epochDay += 3) {
+			jc.setTimeInMillis(epochDay * 86400000L);
+			JalaliDate d = JalaliDate.ofEpochDay(epochDay);
+			Assert.assertEquals(jc.get(Calendar.YEAR), d.getYear());
+			Assert.assertEquals(jc.get(Calendar.MONTH) + 1, d.getMonth());
+			Assert.assertEquals(jc.get(Calendar.DATE), d.getDayOfMonth());
+			Assert.assertEquals(epochDay, d.toEpochDay());
+		}
+		// years past the packed yyyyMMdd range agree with the chronology
+		JalaliDate far = JalaliDate.ofEpochDay(100000000L);
+		JalaliChronoLocalDate chronoFar = JalaliChronoLocalDate.ofEpochDay(100000000L);
+		Assert.assertEquals(chronoFar.get(ChronoField.YEAR), far.getYear());
+		Assert.assertEquals(chronoFar.get(ChronoField.MONTH_OF_YEAR), far.getMonth());
+		Assert.assertEquals(chronoFar.get(ChronoField.DAY_OF_MONTH), far.getDayOfMonth());
+		Assert.assertEquals(100000000L, far.toEpochDay());
+		try {
+			JalaliDate.ofEpochDay(Long.MAX_VALUE / 2);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+		// years are those of the chronology
+		JalaliDate max = JalaliDate.of(JalaliChronology.MAX_YEAR, 12, 1);
+		Assert.assertEquals(JalaliChronology.MAX_YEAR, max.plusDays(28).getYear());
+		Assert.assertEquals(JalaliDate.of(JalaliChronology.MIN_YEAR, 1, 1),
+				JalaliDate.of(JalaliChronology.MIN_YEAR, 12, 1).plusMonths(-11));
+		try {
+			JalaliDate.of(2000000000, 1, 1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			JalaliDate.of(1400, 1, 1).plusMonths(Long.MAX_VALUE / 2);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			JalaliDate.of(1400, 1, 1).plusMonths(12L * 999999000);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			max.plusMonths(Long.MAX_VALUE);
+			Assert.fail();
+		} catch (ArithmeticException e) {
+		}
+		Assert.assertEquals(2147471229, JalaliDate.of(214747, 12, 29).toPackedDate());
+		Assert.assertEquals(-2147469899, JalaliDate.of(-214747, 1, 1).toPackedDate());
+		try {
+			far.toPackedDate();
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testJalaliChronology() {
+		JalaliChronology chrono = JalaliChronology.INSTANCE;
+		Assert.assertEquals(chrono, Chronology.of("Jalali"));
+		JalaliChronoLocalDate date = chrono.date(LocalDate.of(2015, 7, 23));
+		Assert.assertEquals(chrono.date(1394, 5, 1), date);
+		Assert.assertEquals("Jalali AH 1394-05-01", date.toString());
+		Assert.assertEquals(LocalDate.of(2015, 7, 23), LocalDate.from(date));
+		Assert.assertEquals(DayOfWeek.THURSDAY.getValue(), date.get(ChronoField.DAY_OF_WEEK));
+		Assert.assertEquals(chrono.date(1394, 5, 31), date.with(TemporalAdjusters.lastDayOfMonth()));
+		Assert.assertEquals(chrono.date(1394, 12, 29), date.with(TemporalAdjusters.lastDayOfYear()));
+		Assert.assertEquals(chrono.date(1394, 5, 3), date.with(TemporalAdjusters.next(DayOfWeek.SATURDAY)));
+		Assert.assertEquals(chrono.date(1394, 7, 30), chrono.date(1394, 6, 31).plus(1, ChronoUnit.MONTHS));
+		Assert.assertEquals(chrono.period(1, 2, 3), date.until(chrono.date(1395, 7, 4)));
+		Assert.assertEquals(14, date.until(chrono.date(1395, 7, 4), ChronoUnit.MONTHS));
+		Assert.assertEquals(chrono.date(0, 1, 1), chrono.date(chrono.eraOf(0), 1, 1, 1));
+		DateTimeFormatter f = DateTimeFormatter.ofPattern("yyyy/MM/dd").withChronology(chrono);
+		Assert.assertEquals("1394/05/01", f.format(LocalDate.of(2015, 7, 23)));
+		ChronoLocalDate parsed = chrono.date(f.parse("1395/12/30"));
+		Assert.assertEquals(chrono.date(1395, 12, 30), parsed);
+		try {
+			chrono.date(1394, 12, 30);
+			Assert.fail();
+		} catch (DateTimeException e) {
+			// expected, 1394 is not a leap year
+		}
+		for (long epochDay = -800000; epochDay < 800000; epochDay += 17) {
+			JalaliDate d = JalaliDate.ofEpochDay(epochDay);
+			JalaliChronoLocalDate c = chrono.dateEpochDay(epochDay);
+			Assert.assertEquals(d.getYear(), c.get(ChronoField.YEAR));
+			Assert.assertEquals(d.getMonth(), c.get(ChronoField.MONTH_OF_YEAR));
+			Assert.assertEquals(d.getDayOfMonth(), c.get(ChronoField.DAY_OF_MONTH));
+			Assert.assertEquals(epochDay, c.toEpochDay());
+			Assert.assertEquals(d.lengthOfYear(), c.lengthOfYear());
+			Assert.assertEquals(c, chrono.dateYearDay(c.get(ChronoField.YEAR), c.get(ChronoField.DAY_OF_YEAR)));
+		}
+	}
+
+	@Test
+	public void testJalaliFormatter() {
+		TimeZone tehran = TimeZone.getTimeZone("Asia/Tehran");
+		long millis = 1437651240000L; // 2015/07/23 16:04 Tehran
+		JalaliFormatter f = JalaliFormatter.ofPattern("yyyy/MM/dd HH:mm:ss").withZone(tehran);
+		Assert.assertEquals("1394/05/01 16:04:00", f.format(millis));
+		Assert.assertEquals("x 1394/05/01 16:04:00", f.formatTo(millis, new StringBuilder("x ")).toString());
+		char[] buffer = new char[f.getMaxLength() + 3];
+		int length = f.format(millis, buffer, 3);
+		Assert.assertEquals("1394/05/01 16:04:00", new String(buffer, 3, length));
+		Assert.assertEquals("پنجشنبه 1 مرداد 94 'at'", JalaliFormatter.ofPattern("EEEE d MMMM yy '''at'''").withZone(tehran)
+				.format(millis));
+		Assert.assertEquals("۱۳۹۴/۰۵/۰۱", JalaliFormatter.ofPattern("yyyy/MM/dd", true).withZone(tehran).format(millis));
+		try {
+			JalaliFormatter.ofPattern("yyyy/MM/dd G");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		// years past the packed yyyyMMdd range, up to the ends of a long
+		TimeZone utc = TimeZone.getTimeZone("UTC");
+		JalaliFormatter ymd = JalaliFormatter.ofPattern("y/M/d").withZone(utc);
+		String[] far = ymd.format(8000000000000000000L).split("/");
+		Assert.assertTrue(Integer.parseInt(far[0]) > 253000000);
+		Assert.assertTrue(Integer.parseInt(far[1]) >= 1 && Integer.parseInt(far[1]) <= 12);
+		Assert.assertTrue(Integer.parseInt(far[2]) >= 1 && Integer.parseInt(far[2]) <= 31);
+		Assert.assertEquals("1/1", JalaliFormatter.ofPattern("M/d").withZone(utc).format(
+				8000000000000000000L - (Integer.parseInt(far[2]) - 1 + (Integer.parseInt(far[1]) <= 7
+						? (Integer.parseInt(far[1]) - 1) * 31 : 186 + (Integer.parseInt(far[1]) - 7) * 30)) * 86400000L));
+		for (long extreme : new long[] { Long.MIN_VALUE, Long.MAX_VALUE }) {
+			JalaliFormatter widest = JalaliFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS EEEE MMMM").withZone(utc);
+			char[] exact = new char[widest.getMaxLength()];
+			Assert.assertEquals(widest.format(extreme), new String(exact, 0, widest.format(extreme, exact, 0)));
+		}
+		try {
+			f.format(Long.MAX_VALUE);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected, Tehran is ahead of UTC
+		}
+	}
+
+	@Test
+	public void testCsvDateTranscoder() throws IOException {
+		PersianDateConverter pc = PersianDateConverter.getInstance();
+		StringBuilder csv = new StringBuilder("id,date,note,created\n");
+		StringBuilder expected = new StringBuilder("id,date,note,created\n");
+		for (int i = 0; i < 500; i++) {
+			String date = String.format("%04d/%02d/%02d", 1990 + i % 40, 1 + i % 12, 1 + i % 28);
+			String created = String.format("%04d-%02d-%02d 10:%02d", 2000 + i % 20, 1 + i % 12, 1 + i % 28, i % 60);
+			String note = ",\"a, \"\"b\"\"\n" + date + "\",\"";
+			csv.append(i).append(',').append(date).append(note).append(created).append("\"\r\n");
+			expected.append(i).append(',').append(pc.GregorianToSolar(date)).append(note)
+					.append(pc.GregorianToSolar(created)).append("\"\r\n");
+		}
+		csv.append("500,,n/a,2015/07/231");
+		expected.append("500,,n/a,2015/07/231");
+		Path source = Files.createTempFile("persianutils", ".csv");
+		Path target = Files.createTempFile("persianutils", ".csv");
+		try {
+			Files.write(source, csv.toString().getBytes(StandardCharsets.UTF_8));
+			Assert.assertEquals(1000, new CsvDateTranscoder(',', new int[] { 1, 3 }).transcode(source, target));
+			Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+			Assert.assertEquals(1000, new CsvDateTranscoder(',', new int[] { 1, 3 }, 13).transcode(source, target));
+			Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+			new CsvDateTranscoder(',', new int[] { 1, 3 }, 16).transcodeInPlace(source);
+			Assert.assertEquals(expected.toString(), new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+		} finally {
+			Files.delete(source);
+			Files.delete(target);
+		}
+	}
+
+	@Test
+	public void testBulkUnifier() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++)
+			sb.append(i % 3 == 0 ? "كتاب\u200F" : "file ").append(i).append("يك\u202B\n");
+		String text = sb.toString();
+		byte[] expected = PersianCharacterUnifier.getInstance().unify(text).getBytes(StandardCharsets.UTF_8);
+		Path source = Files.createTempFile("persianutils", ".txt");
+		Path target = Files.createTempFile("persianutils", ".txt");
+		try {
+			Files.write(source, text.getBytes(StandardCharsets.UTF_8));
+			Assert.assertEquals(expected.length, new BulkUnifier().unify(source, target));
+			Assert.assertTrue(Arrays.equals(expected, Files.readAllBytes(target)));
+			// chunks cut inside chars, on a pool of several threads
+			final long[] progress = new long[2];
+			BulkUnifier.Progress callback = new BulkUnifier.Progress() {
+				@Override
+				public synchronized void progress(long done, long total, long nanos) {
+					progress[0] = Math.max(progress[0], done);
+					progress[1] = total;
+				}
+			};
+			ForkJoinPool pool = new ForkJoinPool(3);
+			Assert.assertEquals(expected.length, new BulkUnifier(pool, 7).unify(source, target, callback));
+			pool.shutdown();
+			Assert.assertTrue(Arrays.equals(expected, Files.readAllBytes(target)));
+			Assert.assertEquals(Files.size(source), progress[0]);
+			Assert.assertEquals(Files.size(source), progress[1]);
+			// a right-to-left mark written into the last chunk after it was counted
+			byte[] ascii = new byte[64];
+			Arrays.fill(ascii, (byte) 'a');
+			Files.write(source, ascii);
+			final Path changed = source;
+			BulkUnifier.Progress writer = new BulkUnifier.Progress() {
+				@Override
+				public void progress(long done, long total, long nanos) {
+					try (SeekableByteChannel channel = Files.newByteChannel(changed, StandardOpenOption.WRITE)) {
+						channel.position(60).write(ByteBuffer.wrap("\u200F".getBytes(StandardCharsets.UTF_8)));
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			pool = new ForkJoinPool(1);
+			try {
+				new BulkUnifier(pool, 16).unify(source, target, writer);
+				Assert.fail();
+			} catch (IOException e) {
+				Assert.assertTrue(e.getMessage().contains("changed"));
+			}
+			pool.shutdown();
+			Files.write(source, new byte[0]);
+			Assert.assertEquals(0, new BulkUnifier().unify(source, target));
+			Assert.assertEquals(0, Files.size(target));
+		} finally {
+			Files.delete(source);
+			Files.delete(target);
+		}
+	}
+
 	@Test
 	public void testTimeSec() {
 		String str = "2013/01/02 00:00:00";
 		PersianDateConverter pc = PersianDateConverter.getInstance();
 		System.out.println(pc.GregorianToSolar(str));
+		Assert.assertEquals("1391/10/13 00:00", pc.GregorianToSolar(str));
 		//
 		str = "2013/01/02 00:00:00.0";
 		System.out.println(pc.GregorianToSolar(str));
+		Assert.assertEquals("1391/10/13 00:00", pc.GregorianToSolar(str));
 		
 	}
 